@@ -1,15 +1,29 @@
 
 package edu.template.inventory;
 
+import edu.template.inventory.ds.ConcurrentHashTable;
+import edu.template.inventory.ds.DoublyLinkedList;
 import edu.template.inventory.ds.HashTable;
 import edu.template.inventory.ds.SinglyLinkedList;
 import edu.template.inventory.ds.Sorting;
+import edu.template.inventory.ds.UnrolledLinkedList;
+import edu.template.inventory.io.CsvLoader;
 import edu.template.inventory.io.DataGenerator;
+import edu.template.inventory.io.WriteAheadLog;
 import edu.template.inventory.model.Product;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
 import java.nio.file.*;
 import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
 
 public final class Analyzer {
     private Analyzer() {}
@@ -19,18 +33,32 @@ public final class Analyzer {
         System.out.print("Generate how many items (e.g., 2000): ");
         String s = sc.hasNextLine()? sc.nextLine().trim() : "2000";
         int n = Integer.parseInt(s);
+        System.out.print("Also run heavy benchmarks (10M-element sorts, multi-million-row CSVs, 64-thread storms, fsync per write)? [y/N]: ");
+        boolean heavy = sc.hasNextLine() && sc.nextLine().trim().equalsIgnoreCase("y");
         List<Product> data = DataGenerator.generate(n, 456);
         InventoryService svc = new InventoryService();
         svc.load(data);
-        reportAll(svc, "data/analyzer_report.csv");
+        reportAll(svc, "data/analyzer_report.csv", heavy);
     }
 
-    private static void reportAll(InventoryService svc, String csvPath) {
+    // Every benchmark is sized from the dataset (n items, thread counts a small multiple of
+    // the cores) so a default run takes time in proportion to n. heavy runs each one at
+    // its full fixed size instead, whatever n is
+    private static void reportAll(InventoryService svc, String csvPath, boolean heavy) {
         List<Product> list = svc.list("name");
         if (list.isEmpty()) {
             System.out.println("No data to analyze.");
             return;
         }
+        int n = list.size();
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxThreads = heavy ? 64 : Math.min(64, Math.max(4, 2 * cores));
+
+        try {
+            benchmarkBrowse(svc, list);
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("(TODO) " + ex.getMessage());
+        }
         Product[] shuffled = list.toArray(new Product[0]);
         Collections.shuffle(Arrays.asList(shuffled), new Random(42));
 
@@ -39,6 +67,12 @@ public final class Analyzer {
         try { sortMs.put("merge",     timeSort(shuffled, "merge")); }     catch (UnsupportedOperationException ex) { System.out.println("(TODO) " + ex.getMessage()); }
         try { sortMs.put("quick",     timeSort(shuffled, "quick")); }     catch (UnsupportedOperationException ex) { System.out.println("(TODO) " + ex.getMessage()); }
 
+        try {
+            benchmarkAdversarial(shuffled);
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("(TODO) " + ex.getMessage());
+        }
+
         HashTable<String, Product> bySku = new HashTable<>();
         try {
             for (Product p : list) bySku.put(p.getSku(), p);
@@ -66,6 +100,111 @@ public final class Analyzer {
             System.out.println("(TODO) " + ex.getMessage());
         }
 
+        try {
+            benchmarkHashModes(list);
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("(TODO) " + ex.getMessage());
+        }
+
+        try {
+            benchmarkParallelSorts(shuffled, heavy ? 10_000_000 : Math.max(10_000, n));
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("(TODO) " + ex.getMessage());
+        }
+
+        try {
+            benchmarkKeySorts(shuffled, heavy ? 1_000_000 : n);
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("(TODO) " + ex.getMessage());
+        }
+
+        try {
+            benchmarkTopK(shuffled, 50);
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("(TODO) " + ex.getMessage());
+        }
+
+        try {
+            benchmarkListSort(shuffled);
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("(TODO) " + ex.getMessage());
+        }
+
+        try {
+            benchmarkListLoad(list);
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("(TODO) " + ex.getMessage());
+        }
+
+        try {
+            benchmarkChurn(heavy ? 100_000 : n, InventoryService.Storage.LINKED);
+            benchmarkChurn(heavy ? 100_000 : n, InventoryService.Storage.UNROLLED);
+            benchmarkChurn(heavy ? 100_000 : n, InventoryService.Storage.COLUMNAR);
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("(TODO) " + ex.getMessage());
+        }
+
+        try {
+            benchmarkListAccess(heavy ? 1_000_000 : n);
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("(TODO) " + ex.getMessage());
+        }
+
+        try {
+            benchmarkColumnar(heavy ? 1_000_000 : n);
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("(TODO) " + ex.getMessage());
+        }
+
+        try {
+            benchmarkSymbols(heavy ? 1_000_000 : n);
+        } catch (IOException | UnsupportedOperationException ex) {
+            System.out.println("(info) Symbol table benchmark skipped: " + ex.getMessage());
+        }
+
+        try {
+            // The supplier feed is 5M rows; scale down when the heap cannot hold them
+            benchmarkCsvLoad(heavy ? (int) Math.min(5_000_000, Runtime.getRuntime().maxMemory() / 400) : n);
+        } catch (IOException | UnsupportedOperationException ex) {
+            System.out.println("(info) CSV load benchmark skipped: " + ex.getMessage());
+        }
+
+        try {
+            benchmarkStreamingLoad(heavy ? 1_000_000 : n);
+        } catch (IOException | UnsupportedOperationException ex) {
+            System.out.println("(info) Streaming load benchmark skipped: " + ex.getMessage());
+        }
+
+        try {
+            benchmarkConcurrentOrders(heavy ? 10_000 : n, maxThreads);
+        } catch (InterruptedException | UnsupportedOperationException ex) {
+            System.out.println("(info) Concurrent order benchmark skipped: " + ex.getMessage());
+        }
+
+        try {
+            benchmarkConcurrentTable(heavy ? 100_000 : n, Math.min(maxThreads, Math.max(8, cores)));
+        } catch (InterruptedException | UnsupportedOperationException ex) {
+            System.out.println("(info) Concurrent hash table benchmark skipped: " + ex.getMessage());
+        }
+
+        try {
+            benchmarkFlashSale(16, maxThreads, heavy ? 10_000 : Math.min(10_000, n));
+        } catch (InterruptedException | UnsupportedOperationException ex) {
+            System.out.println("(info) Flash sale benchmark skipped: " + ex.getMessage());
+        }
+
+        try {
+            benchmarkOrderBatch(heavy ? 100_000 : n, maxThreads);
+        } catch (InterruptedException | UnsupportedOperationException ex) {
+            System.out.println("(info) Batch order benchmark skipped: " + ex.getMessage());
+        }
+
+        try {
+            benchmarkWal(heavy ? 10_000 : n, heavy ? 4_000 : Math.min(4_000, Math.max(64, n / 10)), maxThreads);
+        } catch (IOException | InterruptedException | UnsupportedOperationException ex) {
+            System.out.println("(info) Write-ahead log benchmark skipped: " + ex.getMessage());
+        }
+
         System.out.println("CSV export is available once sorts complete successfully.");
         try {
             saveCsv(csvPath, list.size(), sortMs);
@@ -110,6 +249,916 @@ public final class Analyzer {
         return (t1 - t0) / 1e6;
     }
 
+    // Chained vs incremental vs open-addressing table: full build (tracking the slowest
+    // single put, i.e. the resize pause), then one lookup per key
+    private static void benchmarkHashModes(List<Product> list) {
+        for (HashTable.Mode mode : HashTable.Mode.values()) {
+            HashTable<String, Product> table = new HashTable<>(mode);
+            long worstPut = 0;
+            long t0 = System.nanoTime();
+            for (Product p : list) {
+                long s = System.nanoTime();
+                table.put(p.getSku(), p);
+                worstPut = Math.max(worstPut, System.nanoTime() - s);
+            }
+            long t1 = System.nanoTime();
+            for (Product p : list) {
+                if (table.get(p.getSku()) == null) throw new RuntimeException("Key not found in HashTable: " + p.getSku());
+            }
+            long t2 = System.nanoTime();
+            System.out.printf("HashTable %-20s put %d: %.3f ms (worst single put %.3f ms), get %d: %.3f ms%n",
+                    mode, list.size(), (t1 - t0) / 1e6, worstPut / 1e6, list.size(), (t2 - t1) / 1e6);
+        }
+
+        HashTable<String, Product> presized = new HashTable<>(HashTable.Mode.OPEN_ADDRESSING, list.size());
+        long t0 = System.nanoTime();
+        for (Product p : list) presized.put(p.getSku(), p);
+        long t1 = System.nanoTime();
+        System.out.printf("HashTable %-20s put %d: %.3f ms (pre-sized, no resizes)%n",
+                HashTable.Mode.OPEN_ADDRESSING, list.size(), (t1 - t0) / 1e6);
+    }
+
+    // First page of a browse from the maintained price view vs copying and re-sorting
+    // the whole catalog for every request (the previous list() implementation)
+    private static void benchmarkBrowse(InventoryService svc, List<Product> list) {
+        long t0 = System.nanoTime();
+        List<Product> page = svc.list("price", 0, 20);
+        long t1 = System.nanoTime();
+        Product[] all = list.toArray(new Product[0]);
+        Sorting.mergeSort(all, Comparator.comparingDouble(Product::getPrice));
+        long t2 = System.nanoTime();
+        System.out.printf("Browse page 1 by price (%d items): view %.3f ms vs full re-sort %.3f ms%n",
+                page.size(), (t1 - t0) / 1e6, (t2 - t1) / 1e6);
+    }
+
+    // Inputs that break naive quicksort: already sorted (our exports), reversed, and all
+    // keys equal (many repeated prices)
+    private static void benchmarkAdversarial(Product[] shuffled) {
+        Comparator<Product> byPrice = Comparator.comparingDouble(Product::getPrice);
+        Product[] sorted = Arrays.copyOf(shuffled, shuffled.length);
+        Sorting.mergeSort(sorted, byPrice);
+        Product[] reversed = new Product[sorted.length];
+        for (int i = 0; i < sorted.length; i++) reversed[i] = sorted[sorted.length - 1 - i];
+        Product[] equal = new Product[sorted.length];
+        Arrays.fill(equal, sorted[0]);
+
+        Map<String, Product[]> inputs = new LinkedHashMap<>();
+        inputs.put("sorted", sorted);
+        inputs.put("reversed", reversed);
+        inputs.put("all-equal", equal);
+        for (Map.Entry<String, Product[]> e : inputs.entrySet()) {
+            System.out.printf("Adversarial %-9s (%d): merge %.3f ms, quick %.3f ms%n", e.getKey(), shuffled.length,
+                    timeSort(e.getValue(), "merge"), timeSort(e.getValue(), "quick"));
+        }
+    }
+
+    // Speedup curves for the fork/join sorts: 1, 2, 4, ... threads up to the core count,
+    // at 10k, 100k, ... elements up to maxSize (sizes beyond what the heap comfortably
+    // holds are skipped). Larger inputs reuse the dataset's products, shuffled, so keys repeat
+    private static void benchmarkParallelSorts(Product[] source, int maxSize) {
+        Comparator<Product> byPrice = Comparator.comparingDouble(Product::getPrice);
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> threads = new ArrayList<>();
+        for (int t = 1; t < cores; t *= 2) threads.add(t);
+        threads.add(cores);
+
+        Random rnd = new Random(11);
+        for (int size = 10_000; size <= maxSize; size *= 10) {
+            // Two arrays of references at ~8 bytes each, with generous headroom
+            if ((long) size * 64 > Runtime.getRuntime().maxMemory()) {
+                System.out.printf("Parallel sort %d: skipped (heap too small)%n", size);
+                continue;
+            }
+            Product[] input = new Product[size];
+            for (int i = 0; i < size; i++) input[i] = source[i % source.length];
+            Collections.shuffle(Arrays.asList(input), rnd);
+
+            double baseMerge = 0, baseQuick = 0;
+            for (int t : threads) {
+                Product[] a = Arrays.copyOf(input, size);
+                long t0 = System.nanoTime();
+                Sorting.parallelMergeSort(a, byPrice, t);
+                long t1 = System.nanoTime();
+                Product[] b = Arrays.copyOf(input, size);
+                long t2 = System.nanoTime();
+                Sorting.parallelQuickSort(b, byPrice, t);
+                long t3 = System.nanoTime();
+
+                double mergeMs = (t1 - t0) / 1e6, quickMs = (t3 - t2) / 1e6;
+                if (t == 1) { baseMerge = mergeMs; baseQuick = quickMs; }
+                System.out.printf("Parallel sort %d, %d thread(s): merge %.3f ms (x%.2f), quick %.3f ms (x%.2f)%n",
+                        size, t, mergeMs, baseMerge / mergeMs, quickMs, baseQuick / quickMs);
+            }
+        }
+    }
+
+    // Comparator sorts vs primitive-key sorts: price as cents through LSD radix sort,
+    // stock (a narrow int range) through counting sort. Inputs are padded to at least minSize
+    private static void benchmarkKeySorts(Product[] source, int minSize) {
+        int size = Math.max(source.length, minSize);
+        Product[] input = new Product[size];
+        for (int i = 0; i < size; i++) input[i] = source[i % source.length];
+        Collections.shuffle(Arrays.asList(input), new Random(13));
+
+        Product[] a = Arrays.copyOf(input, size);
+        long t0 = System.nanoTime();
+        Sorting.mergeSort(a, Comparator.comparingDouble(Product::getPrice));
+        long t1 = System.nanoTime();
+        Product[] b = Arrays.copyOf(input, size);
+        long t2 = System.nanoTime();
+        Sorting.radixSortByLong(b, p -> Math.round(p.getPrice() * 100.0));
+        long t3 = System.nanoTime();
+        System.out.printf("Sort %d by price: mergeSort %.3f ms, radixSortByLong(cents) %.3f ms%n",
+                size, (t1 - t0) / 1e6, (t3 - t2) / 1e6);
+
+        a = Arrays.copyOf(input, size);
+        t0 = System.nanoTime();
+        Sorting.mergeSort(a, Comparator.comparingInt(Product::getStock));
+        t1 = System.nanoTime();
+        b = Arrays.copyOf(input, size);
+        t2 = System.nanoTime();
+        Sorting.countingSort(b, Product::getStock);
+        t3 = System.nanoTime();
+        System.out.printf("Sort %d by stock: mergeSort %.3f ms, countingSort %.3f ms%n",
+                size, (t1 - t0) / 1e6, (t3 - t2) / 1e6);
+    }
+
+    // "k cheapest" three ways: full mergeSort then take k, bounded-heap topK, and
+    // introselect (a[k-1] in place, smaller ones unsorted before it)
+    private static void benchmarkTopK(Product[] source, int k) {
+        Comparator<Product> byPrice = Comparator.comparingDouble(Product::getPrice);
+        k = Math.min(k, source.length);
+
+        Product[] a = Arrays.copyOf(source, source.length);
+        long t0 = System.nanoTime();
+        Sorting.mergeSort(a, byPrice);
+        long t1 = System.nanoTime();
+        Product[] top = Sorting.topK(source, k, byPrice);
+        long t2 = System.nanoTime();
+        Product[] b = Arrays.copyOf(source, source.length);
+        long t3 = System.nanoTime();
+        Sorting.select(b, k - 1, byPrice);
+        long t4 = System.nanoTime();
+
+        if (byPrice.compare(top[k - 1], a[k - 1]) != 0 || byPrice.compare(b[k - 1], a[k - 1]) != 0) {
+            throw new RuntimeException("top-K mismatch");
+        }
+        System.out.printf("Top %d of %d by price: mergeSort %.3f ms, heap topK %.3f ms, introselect %.3f ms%n",
+                k, source.length, (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t4 - t3) / 1e6);
+    }
+
+    // In-place linked-list sort by price: Comparable key, Comparator, primitive key, and a
+    // second primitive-key sort of the now-sorted list (a single natural run)
+    private static void benchmarkListSort(Product[] shuffled) {
+        List<Product> items = Arrays.asList(shuffled);
+        SinglyLinkedList<Product> a = new SinglyLinkedList<>();
+        a.addAll(items);
+        long t0 = System.nanoTime();
+        a.mergeSort(Product::getPrice);
+        long t1 = System.nanoTime();
+
+        SinglyLinkedList<Product> b = new SinglyLinkedList<>();
+        b.addAll(items);
+        long t2 = System.nanoTime();
+        b.sort(Comparator.comparingDouble(Product::getPrice));
+        long t3 = System.nanoTime();
+
+        SinglyLinkedList<Product> c = new SinglyLinkedList<>();
+        c.addAll(items);
+        long t4 = System.nanoTime();
+        c.sortByDouble(Product::getPrice);
+        long t5 = System.nanoTime();
+        c.sortByDouble(Product::getPrice);
+        long t6 = System.nanoTime();
+
+        System.out.printf("LinkedList sort %d by price: mergeSort(key) %.3f ms, sort(cmp) %.3f ms, sortByDouble %.3f ms, already sorted %.3f ms%n",
+                shuffled.length, (t1 - t0) / 1e6, (t3 - t2) / 1e6, (t5 - t4) / 1e6, (t6 - t5) / 1e6);
+    }
+
+    // Catalog load path: per-item addLast vs one bulk addAll, plus a full service load.
+    // Both list paths are O(1) per item, so ns/item should stay flat as n grows
+    private static void benchmarkListLoad(List<Product> list) {
+        SinglyLinkedList<Product> one = new SinglyLinkedList<>();
+        long t0 = System.nanoTime();
+        for (Product p : list) one.addLast(p);
+        long t1 = System.nanoTime();
+
+        SinglyLinkedList<Product> bulk = new SinglyLinkedList<>();
+        long t2 = System.nanoTime();
+        bulk.addAll(list);
+        long t3 = System.nanoTime();
+
+        InventoryService svc = new InventoryService();
+        long t4 = System.nanoTime();
+        svc.load(list);
+        long t5 = System.nanoTime();
+
+        int n = list.size();
+        System.out.printf("LinkedList addLast x%d: %.3f ms (%.1f ns/item)%n", n, (t1 - t0) / 1e6, (double) (t1 - t0) / n);
+        System.out.printf("LinkedList addAll  x%d: %.3f ms (%.1f ns/item)%n", n, (t3 - t2) / 1e6, (double) (t3 - t2) / n);
+        System.out.printf("InventoryService.load x%d: %.3f ms (%.1f ns/item)%n", n, (t5 - t4) / 1e6, (double) (t5 - t4) / n);
+    }
+
+    // Random add/remove of SKUs against a live service; removal goes through the SKU
+    // index straight to the list node, so cost per op should not depend on catalog size
+    private static void benchmarkChurn(int n, InventoryService.Storage storage) {
+        List<Product> data = DataGenerator.generate(n, 99);
+        InventoryService svc = new InventoryService(storage);
+        svc.load(data);
+
+        Random rnd = new Random(5);
+        boolean[] present = new boolean[n];
+        Arrays.fill(present, true);
+        int adds = 0, removes = 0;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            int k = rnd.nextInt(n);
+            Product p = data.get(k);
+            if (present[k]) {
+                if (!svc.removeBySku(p.getSku())) throw new RuntimeException("Remove failed: " + p.getSku());
+                removes++;
+            } else {
+                if (!svc.add(p)) throw new RuntimeException("Add failed: " + p.getSku());
+                adds++;
+            }
+            present[k] = !present[k];
+        }
+        long t1 = System.nanoTime();
+        System.out.printf("Churn on %d SKUs (%s): %d removes + %d adds in %.3f ms (%.1f ns/op)%n",
+                n, storage, removes, adds, (t1 - t0) / 1e6, (double) (t1 - t0) / n);
+    }
+
+    // Full traversal and random get(i) over n items for the singly, doubly and unrolled
+    // lists. Node-per-item lists chase a pointer per element; the unrolled list reads
+    // arrays and skips whole chunks when indexing
+    private static void benchmarkListAccess(int n) {
+        List<Product> data = DataGenerator.generate(n, 11);
+        SinglyLinkedList<Product> singly = new SinglyLinkedList<>();
+        singly.addAll(data);
+        DoublyLinkedList<Product> doubly = new DoublyLinkedList<>();
+        doubly.addAll(data);
+        UnrolledLinkedList<Product> unrolled = new UnrolledLinkedList<>();
+        unrolled.addAll(data);
+
+        int gets = 1_000;
+        int[] idx = new Random(3).ints(gets, 0, n).toArray();
+        // Each traversal is its own loop so every list gets a monomorphic iterator call site
+        timeAccess("SinglyLinkedList  ", n, () -> { long s = 0; for (Product p : singly) s += p.getStock(); return s; }, singly::get, idx);
+        timeAccess("DoublyLinkedList  ", n, () -> { long s = 0; for (Product p : doubly) s += p.getStock(); return s; }, doubly::get, idx);
+        timeAccess("UnrolledLinkedList", n, () -> { long s = 0; for (Product p : unrolled) s += p.getStock(); return s; }, unrolled::get, idx);
+    }
+
+    // Written by the access benchmarks so the JIT cannot drop the loops
+    private static long sink;
+
+    private static void timeAccess(String label, int n, LongSupplier traverse, IntFunction<Product> get, int[] idx) {
+        // One warm-up pass so the timed pass is not dominated by compilation
+        long sum = traverse.getAsLong();
+        long t0 = System.nanoTime();
+        sum += traverse.getAsLong();
+        long t1 = System.nanoTime();
+        for (int i : idx) sum += get.apply(i).getStock();
+        long t2 = System.nanoTime();
+        sink += sum;
+        System.out.printf("%s x%d: traverse %.3f ms (%.2f ns/item), %d random get(i) %.3f ms (%.1f us/get)%n",
+                label, n, (t1 - t0) / 1e6, (double) (t1 - t0) / n, idx.length, (t2 - t1) / 1e6, (t2 - t1) / 1e3 / idx.length);
+    }
+
+    // Resident cost of n products as heap objects vs the columnar off-heap store, then a
+    // lookup/update load test on the store counting young and full collections
+    private static void benchmarkColumnar(int n) {
+        long before = usedHeap();
+        List<Product> data = DataGenerator.generate(n, 23);
+        long objectBytes = usedHeap() - before;
+
+        ColumnarProductStore store = new ColumnarProductStore(n);
+        store.addAll(data);
+        store.trimToSize();
+        String[] skus = new String[n];
+        for (int i = 0; i < n; i++) skus[i] = data.get(i).getSku();
+        data = null;
+
+        System.out.printf("Product objects x%d: %.1f bytes/product on heap%n", n, (double) objectBytes / n);
+        System.out.printf("ColumnarProductStore x%d: %.1f bytes/product off-heap (%d categories)%n",
+                n, (double) store.offHeapBytes() / n, Product.CATEGORIES.size());
+
+        Random rnd = new Random(17);
+        int ops = (int) Math.min(5_000_000, 5L * n);
+        long[] gc0 = gcCounts();
+        long t0 = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < ops; i++) {
+            int row = store.rowOf(skus[rnd.nextInt(n)]);
+            if ((i & 3) == 0) {
+                store.setStockAt(row, store.stockAt(row) + 1);
+            } else {
+                sum += store.stockAt(row) + (long) store.priceAt(row);
+            }
+        }
+        long t1 = System.nanoTime();
+        long[] gc1 = gcCounts();
+        sink += sum;
+        System.out.printf("ColumnarProductStore %d lookups/updates: %.1f ns/op, young GCs %d, full GCs %d%n",
+                ops, (double) (t1 - t0) / ops, gc1[0] - gc0[0], gc1[1] - gc0[1]);
+    }
+
+    // Heap kept by a CSV load now that categories are dictionary codes and equal names share
+    // one String, against the per-row name and category strings a loader would otherwise
+    // keep; then a category filter by int code vs String.equals on those per-row strings
+    private static void benchmarkSymbols(int n) throws IOException {
+        Path csv = Files.createTempFile("symbols", ".csv");
+        try {
+            DataGenerator.save(DataGenerator.generate(n, 31), csv.toString());
+
+            long before = usedHeap();
+            List<Product> loaded = CsvLoader.load(csv.toString());
+            long loadedBytes = usedHeap() - before;
+
+            before = usedHeap();
+            String[] rowNames = new String[n];
+            String[] rowCategories = new String[n];
+            for (int i = 0; i < n; i++) {
+                rowNames[i] = new String(loaded.get(i).getName());
+                rowCategories[i] = new String(loaded.get(i).getCategory());
+            }
+            long rowStringBytes = usedHeap() - before;
+
+            System.out.printf("CsvLoader x%d: %.1f bytes/product retained (names and %d categories shared); per-row name+category strings would add %.1f bytes/product%n",
+                    n, (double) loadedBytes / n, Product.CATEGORIES.size(), (double) rowStringBytes / n);
+
+            String category = loaded.get(0).getCategory();
+            int code = Product.CATEGORIES.code(category);
+            String probe = new String(category);
+            long matches = 0;
+            // Warm-up, then timed passes
+            for (int i = 0; i < n; i++) if (rowCategories[i].equals(probe)) matches++;
+            for (Product p : loaded) if (p.getCategoryCode() == code) matches++;
+            long t0 = System.nanoTime();
+            for (int r = 0; r < 5; r++) {
+                for (int i = 0; i < n; i++) if (rowCategories[i].equals(probe)) matches++;
+            }
+            long t1 = System.nanoTime();
+            for (int r = 0; r < 5; r++) {
+                for (Product p : loaded) if (p.getCategoryCode() == code) matches++;
+            }
+            long t2 = System.nanoTime();
+            sink += matches;
+            System.out.printf("Category filter x%d: String.equals %.2f ns/product, int code %.2f ns/product%n",
+                    n, (t1 - t0) / 5.0 / n, (t2 - t1) / 5.0 / n);
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    // CsvLoader throughput on an n-row generated feed, against the old line-based loader:
+    // BufferedReader + String.split + parseDouble/parseInt into a list of products
+    private static void benchmarkCsvLoad(int n) throws IOException {
+        Path csv = Files.createTempFile("feed", ".csv");
+        try {
+            DataGenerator.save(DataGenerator.generate(n, 41), csv.toString());
+            long bytes = Files.size(csv);
+
+            usedHeap();
+            long t0 = System.nanoTime();
+            List<Product> out = new ArrayList<>();
+            try (BufferedReader br = Files.newBufferedReader(csv)) {
+                String line = br.readLine();
+                while ((line = br.readLine()) != null) {
+                    String[] t = line.split(",", -1);
+                    out.add(new Product(t[0], t[1], t[2], Double.parseDouble(t[3]), Integer.parseInt(t[4])));
+                }
+            }
+            long t1 = System.nanoTime();
+            int rows = out.size();
+            out = null;
+            System.out.printf("Line split baseline x%d (%.1f MB): %.3f s, %.1f MB/s, %.0f rows/s%n",
+                    rows, bytes / 1e6, (t1 - t0) / 1e9, bytes / 1e6 / ((t1 - t0) / 1e9), rows / ((t1 - t0) / 1e9));
+
+            usedHeap();
+            CsvLoader.Result r = CsvLoader.loadWithReport(csv.toString());
+            System.out.printf("CsvLoader x%d (%.1f MB): %.3f s, %.1f MB/s, %.0f rows/s, %d rejected%n",
+                    r.products.size(), r.bytes / 1e6, r.nanos / 1e9, r.megabytesPerSecond(), r.rowsPerSecond(), r.rejectedCount);
+            r = null;
+
+            // Parallel loader speedup over the sequential one, doubling workers up to the core count
+            int cores = Runtime.getRuntime().availableProcessors();
+            long sequential = bestLoadNanos(csv, 0);
+            for (int threads = 1; threads <= cores; threads *= 2) {
+                long nanos = bestLoadNanos(csv, threads);
+                System.out.printf("CsvLoader.loadParallel threads=%d: %.3f s, %.1f MB/s, speedup %.2fx%n",
+                        threads, nanos / 1e9, bytes / 1e6 / (nanos / 1e9), (double) sequential / nanos);
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    // Heap held by a service loaded from an n-row CSV via a materialized list (CsvLoader.load
+    // then load) and via loadStreaming. The list path also holds the parsed list next to
+    // the indexes while they are built; streaming never creates it
+    private static void benchmarkStreamingLoad(int n) throws IOException {
+        Path csv = Files.createTempFile("stream", ".csv");
+        try {
+            DataGenerator.save(DataGenerator.generate(n, 53), csv.toString());
+
+            long base = usedHeap();
+            long t0 = System.nanoTime();
+            List<Product> items = CsvLoader.load(csv.toString());
+            long listBytes = usedHeap() - base;
+            InventoryService svc = new InventoryService();
+            svc.load(items);
+            long t1 = System.nanoTime();
+            items = null;
+            long steady = usedHeap() - base;
+            System.out.printf("InventoryService.load(list) x%d: %.3f s, parsed list (products included) %.1f MB before indexing, steady %.1f MB%n",
+                    n, (t1 - t0) / 1e9, listBytes / 1e6, steady / 1e6);
+            svc = null;
+
+            base = usedHeap();
+            t0 = System.nanoTime();
+            svc = new InventoryService();
+            svc.loadStreaming(csv.toString());
+            t1 = System.nanoTime();
+            steady = usedHeap() - base;
+            System.out.printf("InventoryService.loadStreaming x%d: %.3f s, steady %.1f MB%n",
+                    n, (t1 - t0) / 1e9, steady / 1e6);
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    // Checkout storm: threads place orders (and the odd restock) on a catalog of n SKUs,
+    // half of them against 16 hot SKUs that sell out and get removed. A single lock around
+    // a plain InventoryService is the baseline. Throughput only: the no-oversell invariants
+    // are checked by ConcurrentInventoryServiceTest
+    private static void benchmarkConcurrentOrders(int n, int maxThreads) throws InterruptedException {
+        int opsPerThread = (int) Math.min(20_000, 2L * n);
+        for (int threads = 1; threads <= maxThreads; threads *= 4) {
+            List<Product> data = stormCatalog(n, threads * opsPerThread);
+            ConcurrentInventoryService svc = new ConcurrentInventoryService();
+            svc.load(data);
+            long nanos = runOrders(data, threads, opsPerThread, new AtomicLongArray(n), new AtomicLongArray(n),
+                    svc::order, svc::restock, svc::find);
+
+            int soldOut = 0;
+            for (Product p : data) {
+                if (svc.find(p.getSku()) == null) soldOut++;
+            }
+
+            List<Product> baseData = stormCatalog(n, threads * opsPerThread);
+            InventoryService base = new InventoryService();
+            base.load(baseData);
+            Object lock = new Object();
+            long baseNanos = runOrders(baseData, threads, opsPerThread, new AtomicLongArray(n), new AtomicLongArray(n),
+                    (sku, qty) -> { synchronized (lock) { return base.order(sku, qty); } },
+                    (sku, qty) -> { synchronized (lock) { return base.restock(sku, qty); } },
+                    sku -> { synchronized (lock) { return base.find(sku); } });
+
+            long ops = (long) threads * opsPerThread;
+            System.out.printf("Concurrent orders threads=%d: ConcurrentInventoryService %.0f ops/s, single lock %.0f ops/s; %d SKUs sold out%n",
+                    threads, ops / (nanos / 1e9), ops / (baseNanos / 1e9), soldOut);
+        }
+    }
+
+    // Hot SKUs hold about half their expected demand so they sell out mid-run; the rest
+    // hold about what they will be asked for
+    private static List<Product> stormCatalog(int n, long ops) {
+        List<Product> data = DataGenerator.generate(n, 77);
+        for (int i = 0; i < n; i++) {
+            data.get(i).setStock(i < 16 ? (int) (ops / 20) : (int) Math.max(1, ops * 4 / 5 / n));
+        }
+        return data;
+    }
+
+    // Runs the checkout storm, adding each successful order's and restock's units to the
+    // product's slot in sold / restocked; returns the wall time
+    private static long runOrders(List<Product> data, int threads, int opsPerThread,
+                                  AtomicLongArray sold, AtomicLongArray restocked,
+                                  BiFunction<String, Integer, InventoryService.OrderResult> order,
+                                  BiPredicate<String, Integer> restock,
+                                  Function<String, Product> find) throws InterruptedException {
+        int n = data.size();
+        String[] skus = new String[n];
+        for (int i = 0; i < n; i++) skus[i] = data.get(i).getSku();
+
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long seed = 1000 + t;
+            workers[t] = new Thread(() -> {
+                Random rnd = new Random(seed);
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < opsPerThread; i++) {
+                    int k = rnd.nextBoolean() ? rnd.nextInt(16) : rnd.nextInt(n);
+                    int qty = 1 + rnd.nextInt(3);
+                    int op = rnd.nextInt(100);
+                    if (op < 2) {
+                        if (restock.test(skus[k], qty)) restocked.addAndGet(k, qty);
+                    } else if (op < 20) {
+                        find.apply(skus[k]);
+                    } else if (order.apply(skus[k], qty).ok) {
+                        sold.addAndGet(k, qty);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        for (Thread w : workers) w.join();
+        return System.nanoTime() - t0;
+    }
+
+    // Flash sale on a few hot SKUs: every thread reserves 1-2 units, then commits (80%),
+    // releases (10%) or abandons the cart (10%), which the short timeout expires. Once all
+    // reservations are settled each SKU must satisfy initial == stock + sold, and exactly
+    // the SKUs at zero must be gone from the catalog
+    private static void benchmarkFlashSale(int hot, int threads, int cartsPerThread) throws InterruptedException {
+        List<Product> data = DataGenerator.generate(hot, 88);
+        // 20,000 units per SKU at 64 threads x 10,000 carts, scaled with the demand so some
+        // SKUs sell out at every size
+        int stock = (int) Math.max(100, 20_000L * threads * cartsPerThread / (64 * 10_000));
+        int[] initial = new int[hot];
+        for (int i = 0; i < hot; i++) {
+            data.get(i).setStock(stock);
+            initial[i] = stock;
+        }
+        ConcurrentInventoryService svc = new ConcurrentInventoryService();
+        svc.load(data);
+        svc.setReservationTimeout(20, java.util.concurrent.TimeUnit.MILLISECONDS);
+
+        AtomicLongArray sold = new AtomicLongArray(hot);
+        long[] refused = new long[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                Random rnd = new Random(500 + id);
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < cartsPerThread; i++) {
+                    int k = rnd.nextInt(hot);
+                    ConcurrentInventoryService.Reservation r = svc.tryReserve(data.get(k).getSku(), 1 + rnd.nextInt(2));
+                    if (r == null) {
+                        refused[id]++;
+                        continue;
+                    }
+                    int outcome = rnd.nextInt(10);
+                    if (outcome < 8) {
+                        if (svc.commit(r)) sold.addAndGet(k, r.getQty());
+                    } else if (outcome == 8) {
+                        svc.release(r);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        for (Thread w : workers) w.join();
+        long t1 = System.nanoTime();
+
+        Thread.sleep(40);
+        int expired = svc.expireReservations();
+        int soldOut = 0;
+        for (int i = 0; i < hot; i++) {
+            Product p = data.get(i);
+            if (p.getStock() < 0 || initial[i] != p.getStock() + sold.get(i)) {
+                throw new RuntimeException("Stock mismatch for " + p.getSku() + ": " + initial[i] + " != "
+                        + p.getStock() + " + " + sold.get(i) + " sold");
+            }
+            boolean listed = svc.find(p.getSku()) != null;
+            if (listed == (p.getStock() == 0)) {
+                throw new RuntimeException(p.getSku() + " listed=" + listed + " with stock " + p.getStock());
+            }
+            if (!listed) soldOut++;
+        }
+        long carts = (long) threads * cartsPerThread;
+        long totalRefused = 0;
+        for (long r : refused) totalRefused += r;
+        System.out.printf("Flash sale %d SKUs, threads=%d: %.0f carts/s (%d refused, %d expired at the end), 0 oversold, %d sold out%n",
+                hot, threads, carts / ((t1 - t0) / 1e9), totalRefused, expired, soldOut);
+    }
+
+    // Carts of 5-30 lines: one order() call per line against one orderBatch per cart on a
+    // catalog of n SKUs with ample stock. Then threads check out carts over 32 scarce SKUs
+    // with ConcurrentInventoryService.orderBatch; only whole carts may be sold, so each
+    // SKU's stock must drop by exactly the lines of the carts that went through
+    private static void benchmarkOrderBatch(int n, int threads) throws InterruptedException {
+        int carts = Math.max(100, Math.min(10_000, n / 10));
+        Random rnd = new Random(61);
+        List<List<InventoryService.OrderLine>> cartLines = new ArrayList<>(carts);
+        for (int c = 0; c < carts; c++) {
+            int size = 5 + rnd.nextInt(26);
+            List<InventoryService.OrderLine> cart = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                cart.add(new InventoryService.OrderLine("SKU-" + (1000 + rnd.nextInt(n)), 1 + rnd.nextInt(3)));
+            }
+            cartLines.add(cart);
+        }
+
+        for (int round = 0; round < 2; round++) {
+            InventoryService perLine = new InventoryService();
+            perLine.load(stocked(n, 1_000_000));
+            InventoryService batched = new InventoryService();
+            batched.load(stocked(n, 1_000_000));
+
+            long t0 = System.nanoTime();
+            for (List<InventoryService.OrderLine> cart : cartLines) {
+                for (InventoryService.OrderLine line : cart) {
+                    if (perLine.order(line.sku, line.qty).ok) sink++;
+                }
+            }
+            long t1 = System.nanoTime();
+            for (List<InventoryService.OrderLine> cart : cartLines) {
+                if (batched.orderBatch(cart).ok) sink++;
+            }
+            long t2 = System.nanoTime();
+            // First round warms up both paths
+            if (round == 1) {
+                System.out.printf("Checkout of %d carts (5-30 lines): order per line %.0f ns/cart, orderBatch %.0f ns/cart%n",
+                        carts, (double) (t1 - t0) / carts, (double) (t2 - t1) / carts);
+            }
+        }
+
+        int hot = 32;
+        int cartsPerThread = carts / 5;
+        // 40,000 units per SKU at 64 threads x 2,000 carts; fewer carts get proportionally
+        // less, so about the same share of carts is refused at every size
+        int initial = (int) Math.max(100, 40_000L * threads * cartsPerThread / (64 * 2_000));
+        List<Product> data = stocked(hot, initial);
+        ConcurrentInventoryService svc = new ConcurrentInventoryService();
+        svc.load(data);
+        AtomicLongArray sold = new AtomicLongArray(hot);
+        long[] placed = new long[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                Random r = new Random(900 + id);
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                int[] skus = new int[30];
+                List<InventoryService.OrderLine> cart = new ArrayList<>(30);
+                for (int c = 0; c < cartsPerThread; c++) {
+                    cart.clear();
+                    int size = 5 + r.nextInt(26);
+                    for (int i = 0; i < size; i++) {
+                        skus[i] = r.nextInt(hot);
+                        cart.add(new InventoryService.OrderLine(data.get(skus[i]).getSku(), 1 + r.nextInt(3)));
+                    }
+                    if (svc.orderBatch(cart).ok) {
+                        for (int i = 0; i < size; i++) sold.addAndGet(skus[i], cart.get(i).qty);
+                        placed[id]++;
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        for (Thread w : workers) w.join();
+        long t1 = System.nanoTime();
+
+        long total = 0;
+        for (long p : placed) total += p;
+        for (int i = 0; i < hot; i++) {
+            Product p = data.get(i);
+            if (p.getStock() < 0 || initial - p.getStock() != sold.get(i)) {
+                throw new RuntimeException("Partial cart on " + p.getSku() + ": stock " + p.getStock() + ", sold " + sold.get(i));
+            }
+            if ((svc.find(p.getSku()) == null) != (p.getStock() == 0)) {
+                throw new RuntimeException(p.getSku() + " listing does not match stock " + p.getStock());
+            }
+        }
+        long attempted = (long) threads * cartsPerThread;
+        System.out.printf("Concurrent orderBatch threads=%d on %d SKUs: %.0f carts/s, %d of %d carts placed, no partial carts%n",
+                threads, hot, attempted / ((t1 - t0) / 1e9), total, attempted);
+    }
+
+    // Durable checkouts through ConcurrentInventoryService with a write-ahead log, for
+    // each fsync policy at 1, 8, 64 threads (up to maxThreads): ops changes in all (orders and
+    // restocks of one unit on n SKUs), each waiting until its record is durable. With
+    // EVERY_WRITE the device flush rate is the ceiling however many threads there are;
+    // GROUP shares each flush among the threads waiting for it. After each run the
+    // snapshot plus log is recovered into a new service, which must hold the same stock
+    private static void benchmarkWal(int n, int ops, int maxThreads) throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("wal-bench");
+        try {
+            // Warm-up, not reported
+            runWal(dir, WriteAheadLog.FsyncPolicy.NONE, n, Math.min(8, maxThreads), ops / Math.min(8, maxThreads));
+            for (WriteAheadLog.FsyncPolicy policy : WriteAheadLog.FsyncPolicy.values()) {
+                for (int threads = 1; threads <= maxThreads; threads *= 8) {
+                    int opsPerThread = ops / threads;
+                    long nanos = runWal(dir, policy, n, threads, opsPerThread);
+                    long done = (long) opsPerThread * threads;
+                    System.out.printf("WAL %-11s threads=%2d: %8.0f logged changes/s, %7.1f us per change (replay matches)%n",
+                            policy, threads, done / (nanos / 1e9), nanos / 1e3 * threads / done);
+                }
+            }
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path f : files) Files.delete(f);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    // One benchmarkWal run in dir; returns its wall time
+    private static long runWal(Path dir, WriteAheadLog.FsyncPolicy policy, int n, int threads, int opsPerThread)
+            throws IOException, InterruptedException {
+        String snapshot = dir.resolve("products.csv").toString();
+        String wal = dir.resolve("products.wal").toString();
+        DataGenerator.save(stocked(n, 1_000), snapshot);
+        Files.deleteIfExists(Paths.get(wal));
+        ConcurrentInventoryService svc = new ConcurrentInventoryService();
+        svc.recover(snapshot, wal, policy);
+        List<Product> data = svc.list("name");
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                Random r = new Random(1200 + id);
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < opsPerThread; i++) {
+                    String sku = data.get(r.nextInt(n)).getSku();
+                    if ((i & 1) == 0 ? svc.order(sku, 1).ok : svc.restock(sku, 1)) sink++;
+                }
+            });
+            workers[t].start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        for (Thread w : workers) w.join();
+        long t1 = System.nanoTime();
+        svc.closeLog();
+
+        ConcurrentInventoryService back = new ConcurrentInventoryService();
+        InventoryService.Recovery rec = back.recover(snapshot, wal, policy);
+        back.closeLog();
+        if (rec.replayed != (long) threads * opsPerThread) {
+            throw new RuntimeException("Replayed " + rec.replayed + " of " + (long) threads * opsPerThread + " records");
+        }
+        for (Product p : data) {
+            Product q = back.find(p.getSku());
+            if (q == null || q.getStock() != p.getStock()) {
+                throw new RuntimeException("Replay differs on " + p.getSku() + ": " + p.getStock() + " vs " + (q == null ? "missing" : q.getStock()));
+            }
+        }
+        return t1 - t0;
+    }
+
+    // n generated products, every one with the given stock
+    private static List<Product> stocked(int n, int stock) {
+        List<Product> data = DataGenerator.generate(n, 62);
+        for (Product p : data) p.setStock(stock);
+        return data;
+    }
+
+    // SKU lookups mixed with writes (90% get, 5% put, 5% remove over n keys), the shape of
+    // the checkout path. The single-threaded HashTable runs alone without a lock, then
+    // behind one lock shared by all threads; ConcurrentHashTable is shared without one.
+    // Also times filling a ConcurrentHashTable from its initial 16 bins on all threads at
+    // once, so every resize is migrated cooperatively (ConcurrentHashTableTest checks that
+    // nothing is lost)
+    private static void benchmarkConcurrentTable(int n, int maxThreads) throws InterruptedException {
+        String[] keys = new String[n];
+        for (int i = 0; i < n; i++) keys[i] = "SKU-" + (100000 + i);
+        // Same total work at every thread count, split evenly
+        int totalOps = (int) Math.min(8_000_000, 80L * n);
+
+        HashTable<String, String> plain = new HashTable<>(HashTable.Mode.OPEN_ADDRESSING);
+        for (String k : keys) plain.put(k, k);
+        ConcurrentHashTable<String, String> warm = new ConcurrentHashTable<>();
+        Object warmLock = new Object();
+        // Untimed pass over each variant so the first measurement is not the JIT's
+        runTableMix(keys, 2, totalOps / 2, plain::get, plain::put, plain::remove);
+        runTableMix(keys, 2, totalOps / 2, k -> { synchronized (warmLock) { return plain.get(k); } },
+                (k, v) -> { synchronized (warmLock) { return plain.put(k, v); } },
+                k -> { synchronized (warmLock) { return plain.remove(k); } });
+        runTableMix(keys, 2, totalOps / 2, warm::get, warm::put, warm::remove);
+
+        long nanos = runTableMix(keys, 1, totalOps, plain::get, plain::put, plain::remove);
+        System.out.printf("HashTable (no lock) threads=1: %.0f ops/s%n", totalOps / (nanos / 1e9));
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            HashTable<String, String> locked = new HashTable<>(HashTable.Mode.OPEN_ADDRESSING);
+            for (String k : keys) locked.put(k, k);
+            Object lock = new Object();
+            long lockedNanos = runTableMix(keys, threads, totalOps / threads,
+                    k -> { synchronized (lock) { return locked.get(k); } },
+                    (k, v) -> { synchronized (lock) { return locked.put(k, v); } },
+                    k -> { synchronized (lock) { return locked.remove(k); } });
+
+            ConcurrentHashTable<String, String> shared = new ConcurrentHashTable<>();
+            for (String k : keys) shared.put(k, k);
+            long sharedNanos = runTableMix(keys, threads, totalOps / threads, shared::get, shared::put, shared::remove);
+
+            System.out.printf("Read/write mix threads=%d: HashTable+lock %.0f ops/s, ConcurrentHashTable %.0f ops/s%n",
+                    threads, totalOps / (lockedNanos / 1e9), totalOps / (sharedNanos / 1e9));
+        }
+
+        ConcurrentHashTable<String, String> growing = new ConcurrentHashTable<>();
+        Thread[] workers = new Thread[maxThreads];
+        for (int t = 0; t < maxThreads; t++) {
+            int from = (int) ((long) n * t / maxThreads), to = (int) ((long) n * (t + 1) / maxThreads);
+            workers[t] = new Thread(() -> {
+                for (int i = from; i < to; i++) growing.put(keys[i], keys[i]);
+            });
+        }
+        long t0 = System.nanoTime();
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        long t1 = System.nanoTime();
+        System.out.printf("ConcurrentHashTable fill from empty x%d, threads=%d: %.3f ms%n",
+                n, maxThreads, (t1 - t0) / 1e6);
+    }
+
+    private static long runTableMix(String[] keys, int threads, int opsPerThread, Function<String, String> get,
+                                    BiFunction<String, String, String> put, Function<String, String> remove) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        long[] found = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                Random rnd = new Random(31 + id);
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                long hits = 0;
+                for (int i = 0; i < opsPerThread; i++) {
+                    String k = keys[rnd.nextInt(keys.length)];
+                    int op = rnd.nextInt(20);
+                    if (op == 0) {
+                        put.apply(k, k);
+                    } else if (op == 1) {
+                        remove.apply(k);
+                    } else if (get.apply(k) != null) {
+                        hits++;
+                    }
+                }
+                found[id] = hits;
+            });
+            workers[t].start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        for (Thread w : workers) w.join();
+        long t1 = System.nanoTime();
+        for (long h : found) sink += h;
+        return t1 - t0;
+    }
+
+    // Best of three loads (threads 0 = sequential loader), each from a collected heap, so
+    // neither JIT warm-up nor the previous load's garbage is counted
+    private static long bestLoadNanos(Path csv, int threads) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            usedHeap();
+            CsvLoader.Result r = threads == 0 ? CsvLoader.loadWithReport(csv.toString())
+                    : CsvLoader.loadParallel(csv.toString(), threads);
+            best = Math.min(best, r.nanos);
+        }
+        return best;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    // {young, old/full} collection counts so far, by collector name
+    private static long[] gcCounts() {
+        long[] counts = new long[2];
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String name = gc.getName();
+            boolean full = name.contains("Old") || name.contains("MarkSweep") || name.contains("Full");
+            counts[full ? 1 : 0] += Math.max(0, gc.getCollectionCount());
+        }
+        return counts;
+    }
+
     private static void saveCsv(String path, int n, Map<String, Double> sortMs) throws IOException {
         if (sortMs.isEmpty()) throw new IOException("no sort data");
         Path p = Paths.get(path);
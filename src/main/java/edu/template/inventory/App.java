@@ -3,6 +3,7 @@ package edu.template.inventory;
 
 import edu.template.inventory.io.CsvLoader;
 import edu.template.inventory.io.DataGenerator;
+import edu.template.inventory.io.WriteAheadLog;
 import edu.template.inventory.model.Product;
 
 import java.nio.file.*;
@@ -13,12 +14,25 @@ public class App {
     public static void main(String[] args) throws Exception {
         Map<String, String> argMap = parseArgs(args);
         String dataPath = argMap.getOrDefault("--data", "data/products.csv");
+        // With --wal, the data file is the snapshot and changes are logged there
+        String walPath = argMap.get("--wal");
 
         InventoryService svc = new InventoryService();
-        if (Files.exists(Paths.get(dataPath))) {
-            List<Product> items = CsvLoader.load(dataPath);
-            svc.load(items);
-            System.out.println("Loaded " + items.size() + " products from " + dataPath);
+        CsvLoader.Result loaded = null;
+        if (walPath != null) {
+            WriteAheadLog.FsyncPolicy policy = WriteAheadLog.FsyncPolicy.valueOf(argMap.getOrDefault("--fsync", "group").toUpperCase(Locale.ROOT));
+            InventoryService.Recovery rec = svc.recover(dataPath, walPath, policy);
+            loaded = rec.snapshot;
+            System.out.println("Replayed " + rec.replayed + " logged changes from " + walPath + " (fsync: " + policy + ")");
+        } else if (Files.exists(Paths.get(dataPath))) {
+            loaded = svc.loadCsv(dataPath);
+        }
+        if (loaded != null) {
+            System.out.println("Loaded " + loaded.products.size() + " products from " + dataPath);
+            if (loaded.rejectedCount > 0) {
+                System.out.println("Skipped " + loaded.rejectedCount + " malformed rows, e.g.:");
+                loaded.rejected.stream().limit(5).forEach(r -> System.out.println("  " + r));
+            }
         } else {
             System.out.println("Data file not found: " + dataPath + " (continuing with empty inventory)");
         }
@@ -39,19 +53,21 @@ public class App {
                 if (!sc.hasNextLine()) { System.out.println("No input. Exiting."); break; }
                 String choice = sc.nextLine().trim();
                 switch (choice) {
-                    case "1": adminMenu(sc, svc); break;
+                    case "1": adminMenu(sc, svc, walPath == null ? null : dataPath); break;
                     case "2": customerMenu(sc, svc); break;
                     case "3": Analyzer.run(sc); break;
-                    case "4": dataGenMenu(sc, svc); break;
+                    case "4": dataGenMenu(sc, svc, walPath == null ? null : dataPath); break;
                     case "5": printHelp(); break;
                     case "0": running = false; break;
                     default: System.out.println("Unknown option.");
                 }
             }
         }
+        svc.closeLog();
     }
 
-    private static void adminMenu(Scanner sc, InventoryService svc) {
+    // snapshotPath is set when changes are logged: saving there checkpoints instead
+    private static void adminMenu(Scanner sc, InventoryService svc, String snapshotPath) {
         for (;;) {
             System.out.println();
             System.out.println("[Inventory Admin]");
@@ -63,6 +79,7 @@ public class App {
             System.out.println("  6) Remove product (by SKU)");
             System.out.println("  7) Low-stock report");
             System.out.println("  8) Save to CSV");
+            System.out.println("  9) Category report");
             System.out.println("  0) Back");
             System.out.print("> ");
             if (!sc.hasNextLine()) { System.out.println("No input. Returning."); return; }
@@ -119,10 +136,17 @@ public class App {
                     case "8": {
                         System.out.print("Path to save (e.g., data/out.csv): ");
                         String path = sc.hasNextLine()? sc.nextLine().trim() : "data/out.csv";
-                        svc.saveCsv(path.isEmpty()? "data/out.csv" : path);
-                        System.out.println("Saved.");
+                        if (path.isEmpty()) path = "data/out.csv";
+                        if (snapshotPath != null && Paths.get(path).toAbsolutePath().equals(Paths.get(snapshotPath).toAbsolutePath())) {
+                            svc.checkpoint(snapshotPath);
+                            System.out.println("Saved snapshot; log emptied.");
+                        } else {
+                            svc.saveCsv(path);
+                            System.out.println("Saved.");
+                        }
                         break;
                     }
+                    case "9": svc.categoryStats().forEach(System.out::println); break;
                     case "0": return;
                     default: System.out.println("Unknown option.");
                 }
@@ -139,6 +163,8 @@ public class App {
             System.out.println("  1) Browse products");
             System.out.println("  2) Search (sku or name)");
             System.out.println("  3) Order (sku + qty)");
+            System.out.println("  4) Browse category");
+            System.out.println("  5) Filter by price range");
             System.out.println("  0) Back");
             System.out.print("> ");
             if (!sc.hasNextLine()) { System.out.println("No input. Returning."); return; }
@@ -148,6 +174,8 @@ public class App {
                     case "1": svc.list("name").forEach(System.out::println); break;
                     case "2": {
                         System.out.print("Key: "); String key = sc.hasNextLine()? sc.nextLine() : "";
+                        List<Product> byName = svc.findAllByName(key);
+                        if (!byName.isEmpty()) { byName.forEach(System.out::println); break; }
                         Product p = svc.find(key);
                         System.out.println(p == null? "(TODO) students/you need to code this part: HashTable.get" : p);
                         break;
@@ -159,6 +187,20 @@ public class App {
                         System.out.println(r.message);
                         break;
                     }
+                    case "4": {
+                        System.out.print("Category: "); String cat = sc.hasNextLine()? sc.nextLine().trim() : "";
+                        InventoryService.CategoryStats st = svc.categoryStats(cat);
+                        if (st == null) { System.out.println("No products in category."); break; }
+                        System.out.println(st);
+                        svc.topInCategory(cat, "price", 20).forEach(System.out::println);
+                        break;
+                    }
+                    case "5": {
+                        System.out.print("Min price: "); double min = Double.parseDouble(sc.hasNextLine()? sc.nextLine() : "0");
+                        System.out.print("Max price: "); double max = Double.parseDouble(sc.hasNextLine()? sc.nextLine() : "0");
+                        svc.findByPriceRange(min, max, 50, true).forEach(System.out::println);
+                        break;
+                    }
                     case "0": return;
                     default: System.out.println("Unknown option.");
                 }
@@ -168,7 +210,7 @@ public class App {
         }
     }
 
-    private static void dataGenMenu(Scanner sc, InventoryService svc) {
+    private static void dataGenMenu(Scanner sc, InventoryService svc, String snapshotPath) {
         System.out.print("How many items (e.g., 500): ");
         int n = Integer.parseInt(sc.hasNextLine()? sc.nextLine().trim() : "500");
         System.out.print("Output path (default data/generated.csv): ");
@@ -183,6 +225,11 @@ public class App {
             if (yn.equals("y")) {
                 svc.load(gen);
                 System.out.println("Inventory replaced with generated dataset.");
+                if (snapshotPath != null) {
+                    // Loads are not logged
+                    svc.checkpoint(snapshotPath);
+                    System.out.println("Snapshot " + snapshotPath + " rewritten.");
+                }
             }
         } catch (Exception ex) {
             System.out.println("Failed: " + ex.getMessage());
@@ -0,0 +1,126 @@
+package edu.template.inventory;
+
+import edu.template.inventory.ds.MultiHashTable;
+import edu.template.inventory.ds.SkipList;
+import edu.template.inventory.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Secondary index by Product.category with running per-category aggregates.
+// InventoryService reports every mutation here, so stats are cheap to read and reading
+// never writes: min/max price come from a per-category price order kept current on write.
+// Aggregates live in an array indexed by the category's dictionary code, so the per-mutation
+// lookup is an array read; members are keyed by the shared category String. Removing a
+// product from its category is O(1) (MultiHashTable keeps each member's slot), so sell-outs
+// do not scan categories that hold a large share of the catalog
+final class CategoryIndex {
+
+    private static final class Aggregate {
+        final String category;
+        int count;
+        long totalStock;
+        // Stock value in cents so repeated updates do not accumulate floating-point drift
+        long stockValueCents;
+        // Members by price; the ends are the category's min and max price
+        final SkipList<Double, Product> byPrice = new SkipList<>(Comparator.naturalOrder(), SKU_ORDER);
+
+        Aggregate(String category) { this.category = category; }
+    }
+
+    private static final Comparator<Product> SKU_ORDER = Comparator.comparing(Product::getSku);
+
+    private final MultiHashTable<String, Product> members;
+    // Indexed by Product.CATEGORIES code; null where the category has no products
+    private Aggregate[] aggregates = new Aggregate[8];
+
+    CategoryIndex() {
+        // A catalog has few categories, so the key table stays small; postings grow as needed
+        members = new MultiHashTable<>();
+    }
+
+    private Aggregate aggregate(int code) {
+        return code >= 0 && code < aggregates.length ? aggregates[code] : null;
+    }
+
+    // Aggregate for a category name, or null (also for names never seen)
+    private Aggregate aggregate(String category) {
+        return aggregate(Product.CATEGORIES.code(category));
+    }
+
+    private static long cents(double price) {
+        return Math.round(price * 100.0);
+    }
+
+    void add(Product p) {
+        int code = p.getCategoryCode();
+        if (code >= aggregates.length) {
+            aggregates = Arrays.copyOf(aggregates, Math.max(code + 1, aggregates.length * 2));
+        }
+        Aggregate a = aggregates[code];
+        if (a == null) {
+            a = new Aggregate(p.getCategory());
+            aggregates[code] = a;
+        }
+        members.put(p.getCategory(), p);
+        a.count++;
+        a.totalStock += p.getStock();
+        a.stockValueCents += cents(p.getPrice()) * p.getStock();
+        a.byPrice.insert(p.getPrice(), p);
+    }
+
+    // p must still carry the category, price and stock it was last reported with
+    void remove(Product p) {
+        Aggregate a = aggregate(p.getCategoryCode());
+        if (a == null || !members.remove(p.getCategory(), p)) return;
+        if (--a.count == 0) {
+            aggregates[p.getCategoryCode()] = null;
+            return;
+        }
+        a.totalStock -= p.getStock();
+        a.stockValueCents -= cents(p.getPrice()) * p.getStock();
+        a.byPrice.remove(p.getPrice(), p);
+    }
+
+    void priceChanged(Product p, double oldPrice) {
+        Aggregate a = aggregate(p.getCategoryCode());
+        if (a == null) return;
+        a.stockValueCents += (cents(p.getPrice()) - cents(oldPrice)) * p.getStock();
+        a.byPrice.remove(oldPrice, p);
+        a.byPrice.insert(p.getPrice(), p);
+    }
+
+    void stockChanged(Product p, int oldStock) {
+        Aggregate a = aggregate(p.getCategoryCode());
+        if (a == null) return;
+        a.totalStock += p.getStock() - oldStock;
+        a.stockValueCents += cents(p.getPrice()) * (p.getStock() - oldStock);
+    }
+
+    // Read-only, so concurrent readers may call it together
+    InventoryService.CategoryStats stats(String category) {
+        Aggregate a = aggregate(category);
+        if (a == null) return null;
+        return new InventoryService.CategoryStats(a.category, a.count, a.totalStock,
+                a.stockValueCents / 100.0, a.byPrice.get(0).getPrice(),
+                a.byPrice.get(a.byPrice.size() - 1).getPrice());
+    }
+
+    List<String> categories() {
+        List<String> out = new ArrayList<>();
+        for (Aggregate a : aggregates) if (a != null) out.add(a.category);
+        return out;
+    }
+
+    List<Product> members(String category) {
+        return members.get(category);
+    }
+
+    // Members in list order: insertion order, except that a removal moves the category's
+    // last member into the gap
+    List<Product> page(String category, int offset, int limit) {
+        return members.get(category, offset, limit);
+    }
+}
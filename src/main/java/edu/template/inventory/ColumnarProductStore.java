@@ -0,0 +1,588 @@
+package edu.template.inventory;
+
+import edu.template.inventory.ds.SymbolTable;
+import edu.template.inventory.model.Product;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Compact catalog storage: one row per product spread over primitive columns held in
+// direct (off-heap) buffers, so millions of products cost the GC a handful of objects.
+// Columns: price double, stock int, name code int, category code int, SKU offset int
+// (24 bytes a row), so a scan of one field reads only that field's buffer.
+// SKU bytes (UTF-8) are packed back to back in an arena; a row's SKU runs up to the next
+// row's offset. Categories are stored as their Product.CATEGORIES codes and names as codes
+// in the store's own dictionary, which goes away with the store. The SKU index is an open-addressing table of row numbers, also off-heap.
+// Rows are appended: removal drops the SKU from the index and marks the row dead. Once dead
+// rows outnumber live ones, compact() slides the live rows down over them, so churn costs
+// amortized O(1) per removal and the columns never hold more than twice the live rows.
+// Each row has at most one Product view, made on first use, whose getters and setters read
+// and write the columns; compaction moves the view with its row. Removing a product
+// detaches its view, which keeps the values it had, like a removed heap Product.
+// forService() makes the variant behind InventoryService.Storage.COLUMNAR: no SKU arena
+// or index (the service's SKU table maps to the views), and removed rows are reused by
+// later adds instead of compacted, so a stored product's row never moves
+public final class ColumnarProductStore implements Iterable<Product> {
+    private static final int ROW_BYTES = 8 + 4 + 4 + 4 + 4;
+    // Category code of a removed row
+    private static final int DEAD = -1;
+    // Index slots hold row + 1, 0 is empty. Capacity is not a power of two: the slot is
+    // taken from the high bits of hash * capacity, so any size (and load factor) works
+    private static final double INDEX_LOAD = 0.75;
+    // Dead rows tolerated before removal compacts, however few live rows there are
+    private static final int MIN_DEAD_TO_COMPACT = 64;
+    // Atomic int access to the stock column, for views shared by concurrent orders
+    private static final VarHandle STOCK = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    // False for forService(): no SKU arena or index, and dead rows are reused
+    private final boolean indexed;
+    private ByteBuffer prices;
+    private ByteBuffer stocks;
+    private ByteBuffer nameColumn;
+    private ByteBuffer categoryColumn;
+    private ByteBuffer skuOffsets;
+    private int rowCapacity;
+    private ByteBuffer skus;
+    private ByteBuffer index;
+    private int rowCount;
+    private int skuBytes;
+    private int indexCapacity;
+    private int live;
+    // Names seen by this store; codes stay valid while it lives (removals do not free them)
+    private final SymbolTable names = new SymbolTable();
+    // View of each row, or null where none has been made; grown on demand
+    private RowView[] views = new RowView[0];
+    // Dead rows waiting for reuse (forService() only)
+    private int[] freeRows = new int[0];
+    private int freeCount;
+
+    public ColumnarProductStore() {
+        this(16);
+    }
+
+    // Sized for expected products (and ~12 SKU bytes each) so a bulk load does not grow
+    public ColumnarProductStore(int expected) {
+        this(expected, true);
+    }
+
+    private ColumnarProductStore(int expected, boolean indexed) {
+        this.indexed = indexed;
+        int n = Math.max(expected, 4);
+        allocateColumns(n);
+        if (indexed) {
+            skus = allocate((long) n * 12);
+            indexCapacity = (int) Math.ceil(n / INDEX_LOAD) + 1;
+            index = allocate((long) indexCapacity * 4);
+        }
+    }
+
+    // Store without SKU lookups of its own: products go in with append and out with
+    // remove(Product), and are found through the views append hands out
+    static ColumnarProductStore forService(int expected) {
+        return new ColumnarProductStore(expected, false);
+    }
+
+    private static ByteBuffer allocate(long bytes) {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Column too large: " + bytes + " bytes");
+        }
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    private void allocateColumns(int capacity) {
+        prices = resize(prices, capacity, 8);
+        stocks = resize(stocks, capacity, 4);
+        nameColumn = resize(nameColumn, capacity, 4);
+        categoryColumn = resize(categoryColumn, capacity, 4);
+        if (indexed) skuOffsets = resize(skuOffsets, capacity, 4);
+        rowCapacity = capacity;
+    }
+
+    // New column of capacity rows holding the first rowCount rows of old (if any)
+    private ByteBuffer resize(ByteBuffer old, int capacity, int width) {
+        ByteBuffer column = allocate((long) capacity * width);
+        if (old != null) column.put(0, old, 0, rowCount * width);
+        return column;
+    }
+
+    private static ByteBuffer grow(ByteBuffer old, int used, long minBytes) {
+        long bytes = Math.max(minBytes, (long) old.capacity() * 2);
+        ByteBuffer grown = allocate(Math.min(bytes, Integer.MAX_VALUE - 8));
+        grown.put(0, old, 0, used);
+        return grown;
+    }
+
+    public int size() { return live; }
+
+    public boolean isEmpty() { return live == 0; }
+
+    // Off-heap bytes held by the columns and the SKU index (allocated, not just used)
+    public long offHeapBytes() {
+        if (!indexed) return (long) rowCapacity * (ROW_BYTES - 4);
+        return (long) rowCapacity * ROW_BYTES + skus.capacity() + index.capacity();
+    }
+
+    private void checkIndexed() {
+        if (!indexed) {
+            throw new IllegalStateException("Store has no SKU index; use the views append returned");
+        }
+    }
+
+    // ---- SKU bytes and hashing ----
+
+    private int skuStart(int row) {
+        return skuOffsets.getInt(row * 4);
+    }
+
+    private int skuEnd(int row) {
+        return row + 1 < rowCount ? skuStart(row + 1) : skuBytes;
+    }
+
+    private String skuAt(int row) {
+        int start = skuStart(row);
+        byte[] b = new byte[skuEnd(row) - start];
+        skus.get(start, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private int hashRow(int row) {
+        int h = 0;
+        for (int i = skuStart(row), end = skuEnd(row); i < end; i++) {
+            h = 31 * h + (skus.get(i) & 0xff);
+        }
+        return h;
+    }
+
+    private static int hash(byte[] sku) {
+        int h = 0;
+        for (byte b : sku) h = 31 * h + (b & 0xff);
+        return h;
+    }
+
+    private int slotFor(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return (int) (((mixed & 0xffffffffL) * indexCapacity) >>> 32);
+    }
+
+    private boolean skuEquals(int row, byte[] sku) {
+        int start = skuStart(row);
+        if (skuEnd(row) - start != sku.length) return false;
+        for (int i = 0; i < sku.length; i++) {
+            if (skus.get(start + i) != sku[i]) return false;
+        }
+        return true;
+    }
+
+    // Linear probe for sku: the slot holding its row, or the empty slot that ends the run
+    private int probe(byte[] sku, int hash) {
+        int slot = slotFor(hash);
+        for (;;) {
+            int entry = index.getInt(slot * 4);
+            if (entry == 0 || skuEquals(entry - 1, sku)) return slot;
+            if (++slot == indexCapacity) slot = 0;
+        }
+    }
+
+    private static byte[] utf8(String sku) {
+        return sku.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Row number holding sku, or -1. Rows can be read and updated directly through the
+    // *At accessors without creating a view, until the next removal (which may compact)
+    public int rowOf(String sku) {
+        checkIndexed();
+        byte[] b = utf8(sku);
+        int entry = index.getInt(probe(b, hash(b)) * 4);
+        return entry - 1;
+    }
+
+    public boolean contains(String sku) {
+        return rowOf(sku) >= 0;
+    }
+
+    // ---- mutation ----
+
+    // Appends p as a new row; false if its SKU is already stored
+    public boolean add(Product p) {
+        checkIndexed();
+        byte[] sku = utf8(p.getSku());
+        int h = hash(sku);
+        int slot = probe(sku, h);
+        if (index.getInt(slot * 4) != 0) return false;
+
+        int row = newRow();
+        writeRow(row, p);
+        if ((long) skuBytes + sku.length > skus.capacity()) {
+            skus = grow(skus, skuBytes, (long) skuBytes + sku.length);
+        }
+        skuOffsets.putInt(row * 4, skuBytes);
+        skus.put(skuBytes, sku);
+        skuBytes += sku.length;
+
+        index.putInt(slot * 4, row + 1);
+        live++;
+        if (live > indexCapacity * INDEX_LOAD) {
+            resizeIndex(indexCapacity * 2);
+        }
+        return true;
+    }
+
+    public void addAll(Iterable<? extends Product> items) {
+        for (Product p : items) add(p);
+    }
+
+    // Stores p's values in a row (a reused one if any) and returns the row's view; the
+    // caller keeps SKUs unique. forService() stores only
+    Product append(Product p) {
+        if (indexed) {
+            throw new IllegalStateException("Indexed store: use add");
+        }
+        int row = freeCount > 0 ? freeRows[--freeCount] : newRow();
+        writeRow(row, p);
+        live++;
+        RowView view = new RowView(p.getSku(), row);
+        setView(row, view);
+        return view;
+    }
+
+    private int newRow() {
+        if (rowCount == rowCapacity) {
+            allocateColumns((int) Math.min((long) rowCapacity * 2, Integer.MAX_VALUE / 8));
+        }
+        return rowCount++;
+    }
+
+    private void writeRow(int row, Product p) {
+        prices.putDouble(row * 8, p.getPrice());
+        stocks.putInt(row * 4, p.getStock());
+        nameColumn.putInt(row * 4, names.intern(p.getName()));
+        categoryColumn.putInt(row * 4, p.getCategoryCode());
+    }
+
+    public boolean remove(String sku) {
+        checkIndexed();
+        byte[] b = utf8(sku);
+        int slot = probe(b, hash(b));
+        int entry = index.getInt(slot * 4);
+        if (entry == 0) return false;
+        deleteSlot(slot);
+        kill(entry - 1);
+        return true;
+    }
+
+    // Removes the product behind a view this store handed out; false if it is not stored
+    boolean remove(Product view) {
+        if (!(view instanceof RowView) || ((RowView) view).store() != this) return false;
+        int row = ((RowView) view).row;
+        if (row < 0) return false;
+        if (indexed) {
+            byte[] b = utf8(view.getSku());
+            deleteSlot(probe(b, hash(b)));
+        }
+        kill(row);
+        return true;
+    }
+
+    // Marks row dead and detaches its view; then compacts (indexed) or frees the row for reuse
+    private void kill(int row) {
+        RowView view = row < views.length ? views[row] : null;
+        if (view != null) {
+            view.detach();
+            views[row] = null;
+        }
+        categoryColumn.putInt(row * 4, DEAD);
+        live--;
+        if (!indexed) {
+            if (freeCount == freeRows.length) freeRows = Arrays.copyOf(freeRows, Math.max(16, freeCount * 2));
+            freeRows[freeCount++] = row;
+            return;
+        }
+        int dead = rowCount - live;
+        if (dead > live && dead >= MIN_DEAD_TO_COMPACT) compact();
+    }
+
+    // Drops dead rows: live rows keep their order but move down, taking their views along,
+    // and the SKU arena and the index are rebuilt to match. O(rows); row numbers taken
+    // earlier become stale. Indexed stores only: forService() reuses dead rows instead
+    public void compact() {
+        checkIndexed();
+        if (live == rowCount) return;
+        int w = 0;
+        int wBytes = 0;
+        for (int r = 0; r < rowCount; r++) {
+            if (categoryColumn.getInt(r * 4) == DEAD) continue;
+            // Read the SKU's extent before this row's offset slot can be overwritten;
+            // the copy only moves bytes down, never past the next row's start
+            int start = skuStart(r), end = skuEnd(r);
+            if (w != r) {
+                prices.putDouble(w * 8, prices.getDouble(r * 8));
+                stocks.putInt(w * 4, stocks.getInt(r * 4));
+                nameColumn.putInt(w * 4, nameColumn.getInt(r * 4));
+                categoryColumn.putInt(w * 4, categoryColumn.getInt(r * 4));
+                if (r < views.length) {
+                    RowView view = views[r];
+                    views[r] = null;
+                    if (view != null) view.row = w;
+                    views[w] = view;
+                }
+            }
+            skuOffsets.putInt(w * 4, wBytes);
+            for (int i = start; i < end; i++) skus.put(wBytes++, skus.get(i));
+            w++;
+        }
+        rowCount = w;
+        skuBytes = wBytes;
+        for (int i = 0; i < indexCapacity; i++) index.putInt(i * 4, 0);
+        for (int row = 0; row < rowCount; row++) {
+            int slot = slotFor(hashRow(row));
+            while (index.getInt(slot * 4) != 0) {
+                if (++slot == indexCapacity) slot = 0;
+            }
+            index.putInt(slot * 4, row + 1);
+        }
+    }
+
+    // Backward-shift deletion: pull later entries of the probe run into the gap so
+    // lookups never need tombstones
+    private void deleteSlot(int gap) {
+        index.putInt(gap * 4, 0);
+        int j = gap;
+        for (;;) {
+            if (++j == indexCapacity) j = 0;
+            int entry = index.getInt(j * 4);
+            if (entry == 0) return;
+            int home = slotFor(hashRow(entry - 1));
+            // Move the entry unless its home lies cyclically in (gap, j]
+            int fromHome = j - home < 0 ? j - home + indexCapacity : j - home;
+            int fromGap = j - gap < 0 ? j - gap + indexCapacity : j - gap;
+            if (fromHome >= fromGap) {
+                index.putInt(gap * 4, entry);
+                index.putInt(j * 4, 0);
+                gap = j;
+            }
+        }
+    }
+
+    private void resizeIndex(int capacity) {
+        ByteBuffer old = index;
+        int oldCapacity = indexCapacity;
+        index = allocate((long) capacity * 4);
+        indexCapacity = capacity;
+        for (int i = 0; i < oldCapacity; i++) {
+            int entry = old.getInt(i * 4);
+            if (entry == 0) continue;
+            int slot = slotFor(hashRow(entry - 1));
+            while (index.getInt(slot * 4) != 0) {
+                if (++slot == indexCapacity) slot = 0;
+            }
+            index.putInt(slot * 4, entry);
+        }
+    }
+
+    // Shrinks the row and SKU columns to what is in use, e.g. after a bulk load
+    public void trimToSize() {
+        allocateColumns(Math.max(rowCount, 1));
+        if (views.length > rowCount) views = Arrays.copyOf(views, rowCount);
+        if (!indexed) return;
+        ByteBuffer trimmedSkus = allocate(Math.max(skuBytes, 1));
+        trimmedSkus.put(0, skus, 0, skuBytes);
+        skus = trimmedSkus;
+    }
+
+    public void clear() {
+        for (RowView view : views) if (view != null) view.detach();
+        views = new RowView[0];
+        rowCount = 0;
+        skuBytes = 0;
+        live = 0;
+        freeCount = 0;
+        if (indexed) {
+            for (int i = 0; i < indexCapacity; i++) index.putInt(i * 4, 0);
+        }
+    }
+
+    // ---- row accessors ----
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rowCount || categoryColumn.getInt(row * 4) == DEAD) {
+            throw new IllegalArgumentException("No live row " + row);
+        }
+    }
+
+    public double priceAt(int row) {
+        checkRow(row);
+        return prices.getDouble(row * 8);
+    }
+
+    public int stockAt(int row) {
+        checkRow(row);
+        return stocks.getInt(row * 4);
+    }
+
+    public void setPriceAt(int row, double price) {
+        checkRow(row);
+        prices.putDouble(row * 8, price);
+    }
+
+    public void setStockAt(int row, int stock) {
+        checkRow(row);
+        stocks.putInt(row * 4, stock);
+    }
+
+    public String nameAt(int row) {
+        checkRow(row);
+        return names.symbol(nameColumn.getInt(row * 4));
+    }
+
+    public String categoryAt(int row) {
+        checkRow(row);
+        return Product.CATEGORIES.symbol(categoryColumn.getInt(row * 4));
+    }
+
+    // ---- views ----
+
+    private void setView(int row, RowView view) {
+        if (row >= views.length) views = Arrays.copyOf(views, Math.max(row + 1, Math.min(rowCapacity, views.length * 2 + 16)));
+        views[row] = view;
+    }
+
+    // The row's view, made on first use
+    private RowView view(int row) {
+        RowView view = row < views.length ? views[row] : null;
+        if (view == null) {
+            view = new RowView(skuAt(row), row);
+            setView(row, view);
+        }
+        return view;
+    }
+
+    // Product backed by a row: reads and writes go to the columns. The fields inherited
+    // from Product are only used once the product is removed (see detach), so a removed
+    // product keeps the values it had, like a heap Product dropped from a list. Only the
+    // store moves a view (compaction) or detaches it, both under its single writer
+    private final class RowView extends Product {
+        // -1 once detached
+        private int row;
+
+        RowView(String sku, int row) {
+            super(sku, names.symbol(nameColumn.getInt(row * 4)), categoryColumn.getInt(row * 4),
+                    prices.getDouble(row * 8), stocks.getInt(row * 4));
+            this.row = row;
+        }
+
+        ColumnarProductStore store() { return ColumnarProductStore.this; }
+
+        // Copies the row into the inherited fields and stops reading the columns
+        void detach() {
+            int r = row;
+            super.setName(names.symbol(nameColumn.getInt(r * 4)));
+            super.setCategory(Product.CATEGORIES.symbol(categoryColumn.getInt(r * 4)));
+            super.setPrice(prices.getDouble(r * 8));
+            super.setStock(stocks.getInt(r * 4));
+            row = -1;
+        }
+
+        @Override public int getCategoryCode() {
+            int r = row;
+            return r < 0 ? super.getCategoryCode() : categoryColumn.getInt(r * 4);
+        }
+
+        @Override public String getName() {
+            int r = row;
+            return r < 0 ? super.getName() : names.symbol(nameColumn.getInt(r * 4));
+        }
+
+        @Override public String getCategory() { return Product.CATEGORIES.symbol(getCategoryCode()); }
+
+        @Override public double getPrice() {
+            int r = row;
+            return r < 0 ? super.getPrice() : prices.getDouble(r * 8);
+        }
+
+        @Override public int getStock() {
+            int r = row;
+            return r < 0 ? super.getStock() : stocks.getInt(r * 4);
+        }
+
+        @Override public void setName(String name) {
+            int r = row;
+            if (r < 0) super.setName(name);
+            else nameColumn.putInt(r * 4, names.intern(name));
+        }
+
+        @Override public void setCategory(String category) {
+            int r = row;
+            if (r < 0) super.setCategory(category);
+            else categoryColumn.putInt(r * 4, Product.CATEGORIES.intern(category));
+        }
+
+        @Override public void setPrice(double price) {
+            int r = row;
+            if (r < 0) super.setPrice(price);
+            else prices.putDouble(r * 8, price);
+        }
+
+        @Override public void setStock(int stock) {
+            int r = row;
+            if (r < 0) super.setStock(stock);
+            else stocks.putInt(r * 4, stock);
+        }
+
+        @Override public int compareAndExchangeStock(int expected, int newStock) {
+            int r = row;
+            if (r < 0) return super.compareAndExchangeStock(expected, newStock);
+            return (int) STOCK.compareAndExchange(stocks, r * 4, expected, newStock);
+        }
+
+        @Override public int getAndAddStock(int delta) {
+            int r = row;
+            if (r < 0) return super.getAndAddStock(delta);
+            return (int) STOCK.getAndAdd(stocks, r * 4, delta);
+        }
+
+        @Override public int compareTo(Product o) {
+            return getName().compareToIgnoreCase(o.getName());
+        }
+
+        @Override public String toString() {
+            return String.format("%s | %s | %s | $%.2f | stock=%d", getSku(), getName(), getCategory(), getPrice(), getStock());
+        }
+    }
+
+    // View of the product with this SKU, or null. The same view every time while the
+    // product is stored
+    public Product get(String sku) {
+        int row = rowOf(sku);
+        return row < 0 ? null : view(row);
+    }
+
+    // Views of live rows: insertion order, except that forService() refills dead rows
+    @Override
+    public Iterator<Product> iterator() {
+        return new Iterator<Product>() {
+            private int row = skipDead(0);
+
+            private int skipDead(int r) {
+                while (r < rowCount && categoryColumn.getInt(r * 4) == DEAD) r++;
+                return r;
+            }
+
+            public boolean hasNext() { return row < rowCount; }
+
+            public Product next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("No more elements");
+                }
+                Product p = view(row);
+                row = skipDead(row + 1);
+                return p;
+            }
+        };
+    }
+}
@@ -0,0 +1,852 @@
+package edu.template.inventory;
+
+import edu.template.inventory.io.CsvLoader;
+import edu.template.inventory.io.WriteAheadLog;
+import edu.template.inventory.model.Product;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Thread-safe InventoryService for concurrent checkouts.
+// A read/write lock covers the catalog structure. Lookups, listings and every stock change
+// take the shared side, so any number of them run at once; add, remove, price changes and
+// loads take the exclusive side because they restructure the indexes.
+// Stock itself is changed with CAS loops on the product (Product.compareAndExchangeStock):
+// a checkout re-reads and retries until its decrement lands on the value it checked, so
+// concurrent orders never sell more than was in stock. Takes also hold their SKU's lock
+// stripe, which is what lets a cart check and take all of its SKUs as one step.
+// Carts can hold stock first: tryReserve takes units out of stock for a while, and
+// commit sells them while release (or expiry after the reservation timeout) puts them back.
+// A product that leaves the catalog (removal, or a load replacing it) cancels its held
+// reservations: their units are not returned and commit or release of them fails.
+// Stock changes would otherwise have to move the product in the stock view and the
+// category aggregates, which are shared by every SKU. Instead the first change since the
+// last sync records the stock those indexes still hold, and the indexes are brought up to
+// date the next time the exclusive lock is taken. Reads that depend on stock (the stock
+// view, low-stock reports, category stats) therefore run under the exclusive lock.
+// find by SKU does not lock at all: the service's SKU index is a ConcurrentHashTable
+// (see ProductStore.SkuTables), changed only under the exclusive lock.
+// With a write-ahead log attached (recover), each change is appended under the lock it was
+// made under and the caller then waits for it outside any lock, which is where group
+// commit batches concurrent checkouts into one flush. Stock changes are logged as deltas,
+// always between the same adds, removals and checkpoints. Under the shared lock an
+// increment (restock) is appended before it is applied and a decrement after, so a
+// decrement is never logged ahead of an increment it took units from, and no durable
+// prefix of the log replays to negative stock.
+// Products returned to callers are live objects: their stock can change after the call
+public class ConcurrentInventoryService {
+    private static final long DEFAULT_RESERVATION_TIMEOUT = TimeUnit.MINUTES.toNanos(15);
+    // Settled reservations tolerated in the queue before a sweep, however short it is
+    private static final int SWEEP_MIN = 1024;
+    // Lock stripes for taking stock; a power of two
+    private static final int STRIPES = 64;
+
+    // Units held for one cart. Its state moves once, from held to committed or released
+    // (expiry releases), by CAS, so commit, release and expiry can race safely
+    public static final class Reservation {
+        private static final int HELD = 0, COMMITTED = 1, RELEASED = 2;
+
+        final Product product;
+        final int qty;
+        // System.nanoTime() after which the units go back to stock
+        final long deadline;
+        // The product's count of held reservations
+        final AtomicInteger heldCount;
+        private final AtomicInteger state = new AtomicInteger(HELD);
+
+        Reservation(Product product, int qty, long deadline, AtomicInteger heldCount) {
+            this.product = product;
+            this.qty = qty;
+            this.deadline = deadline;
+            this.heldCount = heldCount;
+        }
+
+        public String getSku() { return product.getSku(); }
+        public int getQty() { return qty; }
+        public boolean isHeld() { return state.get() == HELD; }
+    }
+
+    private final InventoryService svc;
+    private final ReentrantReadWriteLock catalogLock = new ReentrantReadWriteLock();
+    // Product -> stock the stock view and category aggregates still hold for it. Recorded
+    // before the first change since the last sync (so the value read is still the indexed
+    // one) and drained under the write lock
+    private final ConcurrentHashMap<Product, Integer> stockBehind = new ConcurrentHashMap<>();
+    // SKU hash -> lock held by every take of that SKU's stock, so a cart holding the
+    // stripes of all its SKUs finds the stock it checked still there when it takes it.
+    // Adding stock (restock, release) does not need them: it cannot make a check wrong
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    // Reservations in the order they were made. All share one timeout, so this is also
+    // deadline order and expiry only ever looks at the head. Committed and released ones
+    // stay queued until they reach the head or a sweep drops them
+    private final ConcurrentLinkedQueue<Reservation> pending = new ConcurrentLinkedQueue<>();
+    // Approximate counts of the queue and of its settled entries; enough to tell when a
+    // sweep would drop at least half of the queue
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger settledQueued = new AtomicInteger();
+    // Product -> number of its reservations still held; a product is not sold out (and
+    // removed) while any are, since they may come back
+    private final ConcurrentHashMap<Product, AtomicInteger> held = new ConcurrentHashMap<>();
+    // Set while one thread expires or sweeps reservations; only that thread takes from the
+    // queue
+    private final AtomicBoolean expiring = new AtomicBoolean();
+    private volatile long reservationTimeout = DEFAULT_RESERVATION_TIMEOUT;
+    // Attached and detached under the write lock; null means no logging
+    private volatile WriteAheadLog log;
+
+    public ConcurrentInventoryService() {
+        this(InventoryService.Storage.LINKED);
+    }
+
+    public ConcurrentInventoryService(InventoryService.Storage storage) {
+        this.svc = new InventoryService(storage, ProductStore.SkuTables.CONCURRENT);
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new ReentrantLock();
+    }
+
+    // Applies to reservations made from now on. Expiry checks the oldest reservation
+    // first, so shortening the timeout only takes effect once older ones have gone
+    public void setReservationTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be > 0");
+        }
+        reservationTimeout = unit.toNanos(timeout);
+    }
+
+    // Exclusive catalog access with the stock-dependent indexes caught up
+    private void lockCatalog() {
+        catalogLock.writeLock().lock();
+        syncStock();
+    }
+
+    private void unlockCatalog() {
+        catalogLock.writeLock().unlock();
+    }
+
+    // Exclusive catalog access for a change to one product: the caller catches up only
+    // that product (syncStock(p)) and leaves the rest deferred. Sell-outs and removals
+    // would otherwise pay for every stock change since the last sync
+    private void lockProducts() {
+        catalogLock.writeLock().lock();
+    }
+
+    // Caller holds the write lock, so no stock can change meanwhile
+    private void syncStock() {
+        if (stockBehind.isEmpty()) return;
+        stockBehind.forEach((p, indexed) -> {
+            if (p.getStock() != indexed) svc.stockChanged(p, indexed);
+        });
+        stockBehind.clear();
+    }
+
+    // Caller holds the write lock. Brings p's stock-dependent index entries up to date
+    private void syncStock(Product p) {
+        if (p == null) return;
+        Integer indexed = stockBehind.remove(p);
+        if (indexed != null && p.getStock() != indexed) svc.stockChanged(p, indexed);
+    }
+
+    // Caller holds the read lock. True when every stock change made so far is already in
+    // the indexes: changes record in stockBehind before they apply (see noteStock), so an
+    // empty map means none is outstanding; later ones race with the caller's read anyway
+    private boolean stockSynced() {
+        return stockBehind.isEmpty();
+    }
+
+    public void load(List<Product> list) {
+        lockCatalog();
+        try {
+            svc.load(list);
+            catalogReplaced();
+        } finally {
+            unlockCatalog();
+        }
+    }
+
+    public CsvLoader.Result loadCsv(String path) throws IOException {
+        lockCatalog();
+        try {
+            CsvLoader.Result result = svc.loadCsv(path);
+            catalogReplaced();
+            return result;
+        } finally {
+            unlockCatalog();
+        }
+    }
+
+    public CsvLoader.Result loadStreaming(String path) throws IOException {
+        lockCatalog();
+        try {
+            CsvLoader.Result result = svc.loadStreaming(path);
+            catalogReplaced();
+            return result;
+        } finally {
+            unlockCatalog();
+        }
+    }
+
+    // See InventoryService.recover
+    public InventoryService.Recovery recover(String snapshotPath, String walPath, WriteAheadLog.FsyncPolicy policy) throws IOException {
+        lockCatalog();
+        try {
+            detachLog();
+            InventoryService.Recovery r;
+            try {
+                r = svc.restore(snapshotPath, walPath);
+            } finally {
+                catalogReplaced();
+            }
+            log = WriteAheadLog.open(Paths.get(walPath), policy);
+            return r;
+        } finally {
+            unlockCatalog();
+        }
+    }
+
+    // See InventoryService.checkpoint. Checkouts wait while the snapshot is written.
+    // Reserved units are only logged when committed, so the snapshot counts them as still
+    // in stock: after a crash the carts are gone and so must their holds be
+    public void checkpoint(String snapshotPath) throws IOException {
+        lockCatalog();
+        try {
+            if (log == null) throw new IllegalStateException("No log attached; call recover first");
+            Map<Product, Integer> reserved = new HashMap<>();
+            for (Reservation r : pending) {
+                if (r.isHeld()) reserved.merge(r.product, r.qty, Integer::sum);
+            }
+            svc.checkpoint(snapshotPath, log, p -> p.getStock() + reserved.getOrDefault(p, 0));
+        } finally {
+            unlockCatalog();
+        }
+    }
+
+    public void closeLog() throws IOException {
+        lockCatalog();
+        try {
+            detachLog();
+        } finally {
+            unlockCatalog();
+        }
+    }
+
+    // Caller holds the write lock
+    private void detachLog() throws IOException {
+        WriteAheadLog l = log;
+        log = null;
+        if (l != null) l.close();
+    }
+
+    // Waits, holding no lock, for a change appended to wal at lsn (wal null: not logged)
+    private static void logged(WriteAheadLog wal, long lsn) {
+        if (wal == null) return;
+        try {
+            wal.await(lsn);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Change applied but not logged", ex);
+        }
+    }
+
+    // Caller holds the write lock, after a load replaced every product: every held
+    // reservation is cancelled
+    private void catalogReplaced() {
+        for (Reservation r : pending) {
+            if (r.state.compareAndSet(Reservation.HELD, Reservation.RELEASED)) r.heldCount.decrementAndGet();
+        }
+        pending.clear();
+        queued.set(0);
+        settledQueued.set(0);
+        held.clear();
+    }
+
+    // Caller holds the write lock, as p leaves the catalog. Cancels p's held reservations
+    // without returning their units; O(queued reservations), only when p has any
+    private void cancelHeld(Product p) {
+        AtomicInteger count = held.remove(p);
+        if (count == null || count.get() == 0) return;
+        for (Reservation r : pending) {
+            if (r.product == p && r.state.compareAndSet(Reservation.HELD, Reservation.RELEASED)) {
+                count.decrementAndGet();
+                settledQueued.incrementAndGet();
+            }
+        }
+    }
+
+    public boolean add(Product p) {
+        WriteAheadLog wal;
+        long lsn;
+        // A new product has no deferred stock changes
+        lockProducts();
+        try {
+            if (!svc.add(p)) return false;
+            wal = log;
+            lsn = wal == null ? 0 : wal.logAdd(p);
+        } finally {
+            unlockCatalog();
+        }
+        logged(wal, lsn);
+        return true;
+    }
+
+    public boolean removeBySku(String sku) {
+        WriteAheadLog wal;
+        long lsn;
+        lockProducts();
+        try {
+            Product p = svc.lookup(sku);
+            syncStock(p);
+            if (p == null || !svc.removeBySku(sku)) return false;
+            cancelHeld(p);
+            wal = log;
+            lsn = wal == null ? 0 : wal.logRemove(sku);
+        } finally {
+            unlockCatalog();
+        }
+        logged(wal, lsn);
+        return true;
+    }
+
+    public boolean updatePrice(String sku, double newPrice) {
+        WriteAheadLog wal;
+        long lsn;
+        lockProducts();
+        try {
+            // The category's stock value is repriced at the product's indexed stock
+            syncStock(svc.lookup(sku));
+            if (!svc.updatePrice(sku, newPrice)) return false;
+            wal = log;
+            lsn = wal == null ? 0 : wal.logPrice(sku, newPrice);
+        } finally {
+            unlockCatalog();
+        }
+        logged(wal, lsn);
+        return true;
+    }
+
+    public Product find(String key) {
+        Product p = svc.lookup(key);
+        if (p != null) return p;
+        // Not a SKU: exact name lookup
+        catalogLock.readLock().lock();
+        try {
+            return svc.find(key);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    public List<Product> findAllByName(String name) {
+        catalogLock.readLock().lock();
+        try {
+            return svc.findAllByName(name);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    public boolean restock(String sku, int qty) {
+        if (qty <= 0) return false;
+        WriteAheadLog wal;
+        long lsn;
+        catalogLock.readLock().lock();
+        try {
+            expireDue();
+            Product p = svc.lookup(sku);
+            if (p == null) return false;
+            // Logged first: an order may take these units the moment they are given
+            wal = log;
+            lsn = wal == null ? 0 : wal.logStock(sku, qty);
+            give(p, qty);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        logged(wal, lsn);
+        return true;
+    }
+
+    // Same outcomes as InventoryService.order. Selling out needs the exclusive lock to
+    // unindex the product; it is taken after the shared lock is released, and the product
+    // is only removed if it is still at zero with nothing reserved
+    public InventoryService.OrderResult order(String sku, int qty) {
+        if (qty <= 0) return new InventoryService.OrderResult(false, "Quantity must be > 0");
+        Product p;
+        int remaining;
+        WriteAheadLog wal;
+        long lsn;
+        catalogLock.readLock().lock();
+        try {
+            expireDue();
+            p = svc.lookup(sku);
+            if (p == null) return new InventoryService.OrderResult(false, "SKU not found");
+            remaining = takeLocked(p, qty);
+            if (remaining < 0) return new InventoryService.OrderResult(false, "Insufficient stock");
+            wal = log;
+            lsn = wal == null ? 0 : wal.logStock(sku, -qty);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        boolean soldOut = remaining == 0 && sellOut(p);
+        logged(wal, lsn);
+        if (soldOut) {
+            return new InventoryService.OrderResult(true, "Order placed. Item is now out of stock and removed from inventory.");
+        }
+        return new InventoryService.OrderResult(true, "Order placed. Remaining stock: " + remaining);
+    }
+
+    // All-or-nothing cart checkout. Lines are grouped by SKU and each SKU is looked up
+    // once. The cart then locks the stripes of all its SKUs, in stripe order so two carts
+    // cannot each hold a stripe the other waits for, and checks and takes every group
+    // under them. Nothing else can take those SKUs meanwhile, so a cart that passes the
+    // check always fills, and one that is short takes nothing: no other checkout ever
+    // sees part of a cart taken or fails for units a cart later puts back
+    public InventoryService.BatchResult orderBatch(List<InventoryService.OrderLine> lines) {
+        int n = lines.size();
+        byte[] codes = new byte[n];
+        int[] order = InventoryService.skuOrder(lines);
+        Product[] soldOut = null;
+        int soldOutCount = 0;
+        WriteAheadLog wal;
+        long lsn = 0;
+        catalogLock.readLock().lock();
+        try {
+            expireDue();
+            Product[] resolved = InventoryService.resolveGroups(lines, order, codes, svc::lookup);
+            // Carts that are short already fail without locking anything
+            InventoryService.markShortGroups(lines, order, resolved, codes);
+            if (!InventoryService.allOk(codes)) return new InventoryService.BatchResult(false, codes);
+
+            int[] locked = lockStripes(lines, order);
+            try {
+                InventoryService.markShortGroups(lines, order, resolved, codes);
+                if (!InventoryService.allOk(codes)) return new InventoryService.BatchResult(false, codes);
+                for (int g = 0; g < n; ) {
+                    int end = InventoryService.groupEnd(lines, order, g);
+                    // Checked under the stripes, so this cannot come up short
+                    if (take(resolved[g], (int) InventoryService.groupQty(lines, order, g, end)) == 0) {
+                        if (soldOut == null) soldOut = new Product[n];
+                        soldOut[soldOutCount++] = resolved[g];
+                    }
+                    g = end;
+                }
+            } finally {
+                for (int i = locked.length - 1; i >= 0; i--) stripes[locked[i]].unlock();
+            }
+            wal = log;
+            if (wal != null) lsn = logBatch(wal, lines, order);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        for (int i = 0; i < soldOutCount; i++) sellOut(soldOut[i]);
+        logged(wal, lsn);
+        return new InventoryService.BatchResult(true, codes);
+    }
+
+    // Locks the stripes of the cart's SKU groups, each once and in ascending order (two
+    // SKUs can share a stripe, so SKU order alone could still deadlock). Returns the
+    // stripes locked, for unlocking
+    private int[] lockStripes(List<InventoryService.OrderLine> lines, int[] order) {
+        int[] locked = new int[order.length];
+        int count = 0;
+        for (int g = 0; g < order.length; g = InventoryService.groupEnd(lines, order, g)) {
+            int s = stripe(lines.get(order[g]).sku);
+            int j = count;
+            while (j > 0 && locked[j - 1] > s) j--;
+            if (j > 0 && locked[j - 1] == s) continue;
+            System.arraycopy(locked, j, locked, j + 1, count - j);
+            locked[j] = s;
+            count++;
+        }
+        locked = Arrays.copyOf(locked, count);
+        for (int s : locked) stripes[s].lock();
+        return locked;
+    }
+
+    private static int stripe(String sku) {
+        int h = sku.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    // One stock record for a filled cart: a decrement per SKU
+    private static long logBatch(WriteAheadLog wal, List<InventoryService.OrderLine> lines, int[] order) {
+        String[] skus = new String[order.length];
+        int[] deltas = new int[order.length];
+        int groups = 0;
+        for (int g = 0; g < order.length; ) {
+            int end = InventoryService.groupEnd(lines, order, g);
+            skus[groups] = lines.get(order[g]).sku;
+            deltas[groups++] = -(int) InventoryService.groupQty(lines, order, g, end);
+            g = end;
+        }
+        return wal.logStock(skus, deltas, groups);
+    }
+
+    // Takes qty units out of stock for a cart; null if the SKU is unknown or there is not
+    // enough stock. The units are gone from stock until the reservation is committed,
+    // released or expires
+    public Reservation tryReserve(String sku, int qty) {
+        if (qty <= 0) return null;
+        catalogLock.readLock().lock();
+        try {
+            expireDue();
+            Product p = svc.lookup(sku);
+            if (p == null || takeLocked(p, qty) < 0) return null;
+            // Sell-out checks run under the write lock, so they cannot see the units gone
+            // before they are counted as held
+            AtomicInteger count = held.computeIfAbsent(p, k -> new AtomicInteger());
+            count.incrementAndGet();
+            Reservation r = new Reservation(p, qty, System.nanoTime() + reservationTimeout, count);
+            pending.add(r);
+            queued.incrementAndGet();
+            return r;
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // Sells the reserved units; false if the reservation was already committed, released
+    // or expired. A product left at zero with nothing else reserved is sold out.
+    // The sale is logged here, not at tryReserve: held units are still stock to the log
+    public boolean commit(Reservation r) {
+        int left;
+        WriteAheadLog wal;
+        long lsn = 0;
+        // Shared lock so a checkpoint sees each reservation either held or logged
+        catalogLock.readLock().lock();
+        try {
+            expireDue();
+            if (!r.state.compareAndSet(Reservation.HELD, Reservation.COMMITTED)) return false;
+            left = r.heldCount.decrementAndGet();
+            settledQueued.incrementAndGet();
+            wal = log;
+            // A product removed meanwhile has nothing left in the log to sell from
+            if (wal != null && svc.lookup(r.product.getSku()) == r.product) lsn = wal.logStock(r.product.getSku(), -r.qty);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        if (left == 0 && r.product.getStock() == 0) sellOut(r.product);
+        logged(wal, lsn);
+        return true;
+    }
+
+    // Puts the reserved units back; false if the reservation was already committed,
+    // released or expired
+    public boolean release(Reservation r) {
+        catalogLock.readLock().lock();
+        try {
+            if (!giveBack(r)) return false;
+            settledQueued.incrementAndGet();
+            expireDue();
+            return true;
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // Releases every reservation past its deadline and returns how many there were (0 if
+    // another thread is already at it). Every stock-changing call (tryReserve, order,
+    // orderBatch, restock, commit, release) also does this as it goes, so abandoned carts
+    // return their stock while the service is in use; call this from a timer if stock
+    // must come back while nothing else is happening
+    public int expireReservations() {
+        catalogLock.readLock().lock();
+        try {
+            return expire(System.nanoTime());
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // expire(now) for the order paths: with nothing queued it returns before reading the
+    // clock, so checkouts that never reserve pay one volatile read for expiry
+    private void expireDue() {
+        if (queued.get() != 0) expire(System.nanoTime());
+    }
+
+    // Caller holds the read lock. Reservations that were committed or released are
+    // dropped from the queue on the way, and swept from the rest of it once they make up
+    // half of it, so a long-lived head cannot pin every cart settled behind it
+    private int expire(long now) {
+        if (!due(pending.peek(), now) && !sweepDue()) return 0;
+        if (!expiring.compareAndSet(false, true)) return 0;
+        try {
+            int expired = 0;
+            Reservation r;
+            while (due(r = pending.peek(), now)) {
+                pending.poll();
+                queued.decrementAndGet();
+                if (!r.isHeld()) {
+                    settledQueued.decrementAndGet();
+                } else if (giveBack(r)) {
+                    expired++;
+                }
+            }
+            if (sweepDue()) {
+                int dropped = 0;
+                for (Iterator<Reservation> it = pending.iterator(); it.hasNext(); ) {
+                    if (!it.next().isHeld()) {
+                        it.remove();
+                        dropped++;
+                    }
+                }
+                queued.addAndGet(-dropped);
+                settledQueued.set(0);
+            }
+            return expired;
+        } finally {
+            expiring.set(false);
+        }
+    }
+
+    // Reservations still queued, held or settled (approximate under concurrent changes)
+    int queuedReservations() {
+        return queued.get();
+    }
+
+    // Amortized O(1): a sweep walks the queue only when it will drop at least half of it
+    private boolean sweepDue() {
+        int settled = settledQueued.get();
+        return settled >= SWEEP_MIN && 2 * settled >= queued.get();
+    }
+
+    private static boolean due(Reservation r, long now) {
+        return r != null && (!r.isHeld() || r.deadline - now <= 0);
+    }
+
+    // Caller holds the read lock. The units go back only if the product is still the
+    // listed one; a product that left the catalog must not re-enter its indexes
+    private boolean giveBack(Reservation r) {
+        if (!r.state.compareAndSet(Reservation.HELD, Reservation.RELEASED)) return false;
+        if (svc.lookup(r.product.getSku()) == r.product) give(r.product, r.qty);
+        r.heldCount.decrementAndGet();
+        return true;
+    }
+
+    // Removes p if it is still listed, at zero and has nothing reserved; true if removed
+    private boolean sellOut(Product p) {
+        WriteAheadLog wal;
+        long lsn;
+        lockProducts();
+        try {
+            AtomicInteger count = held.get(p);
+            if (svc.lookup(p.getSku()) != p || p.getStock() != 0 || (count != null && count.get() != 0)) return false;
+            syncStock(p);
+            svc.removeBySku(p.getSku());
+            cancelHeld(p);
+            wal = log;
+            lsn = wal == null ? 0 : wal.logRemove(p.getSku());
+        } finally {
+            unlockCatalog();
+        }
+        logged(wal, lsn);
+        return true;
+    }
+
+    // CAS loop taking qty units from p; returns the stock left, or -1 (nothing taken) if
+    // there were not enough. Caller holds the read lock and p's stripe
+    private int take(Product p, int qty) {
+        int stock = p.getStock();
+        noteStock(p, stock);
+        for (;;) {
+            if (stock < qty) return -1;
+            int found = p.compareAndExchangeStock(stock, stock - qty);
+            if (found == stock) return stock - qty;
+            stock = found;
+        }
+    }
+
+    // take under p's stripe, for checkouts of a single SKU. Caller holds the read lock
+    private int takeLocked(Product p, int qty) {
+        ReentrantLock stripe = stripes[stripe(p.getSku())];
+        stripe.lock();
+        try {
+            return take(p, qty);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // Caller holds the read lock
+    private void give(Product p, int qty) {
+        noteStock(p, p.getStock());
+        p.getAndAddStock(qty);
+    }
+
+    // Records the stock the indexes hold for p unless a change since the last sync
+    // already did. Every change records before it applies, so when this thread's record is
+    // the first, no change has happened yet and stock is still the indexed value
+    private void noteStock(Product p, int stock) {
+        if (!stockBehind.containsKey(p)) stockBehind.putIfAbsent(p, stock);
+    }
+
+    public List<Product> list(String by) {
+        if (by.equals("stock")) {
+            lockCatalog();
+            try {
+                return svc.list(by);
+            } finally {
+                unlockCatalog();
+            }
+        }
+        catalogLock.readLock().lock();
+        try {
+            return svc.list(by);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    public List<Product> list(String by, int offset, int limit) {
+        if (by.equals("stock")) {
+            lockCatalog();
+            try {
+                return svc.list(by, offset, limit);
+            } finally {
+                unlockCatalog();
+            }
+        }
+        catalogLock.readLock().lock();
+        try {
+            return svc.list(by, offset, limit);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    public List<Product> listAfter(String by, InventoryService.Cursor after, int limit) {
+        if (by.equals("stock")) {
+            lockCatalog();
+            try {
+                return svc.listAfter(by, after, limit);
+            } finally {
+                unlockCatalog();
+            }
+        }
+        catalogLock.readLock().lock();
+        try {
+            return svc.listAfter(by, after, limit);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // Walks a copy taken under the lock; a lazy walk of the live view could not hold it
+    public Iterator<Product> iterate(String by) {
+        return list(by).iterator();
+    }
+
+    public InventoryService.CategoryStats categoryStats(String category) {
+        catalogLock.readLock().lock();
+        try {
+            if (stockSynced()) return svc.categoryStats(category);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        // Stock totals are behind: catch them up exclusively
+        lockCatalog();
+        try {
+            return svc.categoryStats(category);
+        } finally {
+            unlockCatalog();
+        }
+    }
+
+    public List<InventoryService.CategoryStats> categoryStats() {
+        catalogLock.readLock().lock();
+        try {
+            if (stockSynced()) return svc.categoryStats();
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        lockCatalog();
+        try {
+            return svc.categoryStats();
+        } finally {
+            unlockCatalog();
+        }
+    }
+
+    public List<Product> listByCategory(String category, int offset, int limit) {
+        catalogLock.readLock().lock();
+        try {
+            return svc.listByCategory(category, offset, limit);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    public List<Product> topInCategory(String category, String by, int k) {
+        if (by.equals("stock")) {
+            // Stock must hold still while the heap compares it
+            lockCatalog();
+            try {
+                return svc.topInCategory(category, by, k);
+            } finally {
+                unlockCatalog();
+            }
+        }
+        catalogLock.readLock().lock();
+        try {
+            return svc.topInCategory(category, by, k);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    public List<Product> lowStock(String category, int threshold, int k) {
+        lockCatalog();
+        try {
+            return svc.lowStock(category, threshold, k);
+        } finally {
+            unlockCatalog();
+        }
+    }
+
+    public List<Product> lowStock(int threshold) {
+        lockCatalog();
+        try {
+            return svc.lowStock(threshold);
+        } finally {
+            unlockCatalog();
+        }
+    }
+
+    public List<Product> findByPriceRange(double min, double max, int limit, boolean ascending) {
+        catalogLock.readLock().lock();
+        try {
+            return svc.findByPriceRange(min, max, limit, ascending);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    public List<Product> findByStockRange(int min, int max, int limit, boolean ascending) {
+        lockCatalog();
+        try {
+            return svc.findByStockRange(min, max, limit, ascending);
+        } finally {
+            unlockCatalog();
+        }
+    }
+
+    // Orders may continue while the file is written; each row is one consistent product
+    public void saveCsv(String path) throws IOException {
+        catalogLock.readLock().lock();
+        try {
+            svc.saveCsv(path);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+}
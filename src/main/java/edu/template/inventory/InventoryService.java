@@ -1,29 +1,97 @@
-
 package edu.template.inventory;
 
 import edu.template.inventory.ds.HashTable;
-import edu.template.inventory.ds.SinglyLinkedList;
+import edu.template.inventory.ds.MultiHashTable;
+import edu.template.inventory.ds.SkipList;
 import edu.template.inventory.ds.Sorting;
+import edu.template.inventory.io.CsvLoader;
+import edu.template.inventory.io.WriteAheadLog;
 import edu.template.inventory.model.Product;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 public class InventoryService {
 
-    private final SinglyLinkedList<Product> products = new SinglyLinkedList<>();
-    private final HashTable<String, Product> bySku = new HashTable<>();
-    private final HashTable<String, Product> byName = new HashTable<>();
+    // How the catalog list is stored: one node per product, or array chunks per node
+    // COLUMNAR keeps prices, stock and dictionary codes in off-heap columns and indexes one
+    // small view per product, so add and load store a view rather than the caller's object
+    public enum Storage { LINKED, UNROLLED, COLUMNAR }
+
+    // Catalog list plus SKU -> list handle, so delete and sell-out unlink without a search.
+    // Loads build a new store and swap it in; volatile for lookup without a lock
+    private volatile ProductStore products;
+    // Kept so loads can build a replacement store of the same kind
+    private final Storage storage;
+    private final ProductStore.SkuTables skuTables;
+    // Normalized name -> every product with that name (names repeat across SKUs)
+    private MultiHashTable<String, Product> byName = new MultiHashTable<>();
+    // Category -> products plus running count/stock/value/min/max price
+    private CategoryIndex byCategory = new CategoryIndex();
+
+    // Ordered views for browsing, keyed by sort field with SKU as tie-breaker.
+    // Kept up to date on every mutation, so listing never re-sorts the catalog
+    // Catalogs at least this large are sorted with the fork/join sorts when views are rebuilt
+    private static final int PARALLEL_SORT_CUTOFF = 100_000;
+    // Products indexed per batch by loadStreaming
+    private static final int STREAM_BATCH = 4096;
+    // Bytes loadStreaming samples from the start of the file to estimate its row count
+    private static final int STREAM_SAMPLE_BYTES = 64 * 1024;
+    // Most rows loadStreaming pre-sizes for; a larger feed grows the SKU index as it loads
+    private static final int STREAM_MAX_PRESIZE = 1 << 24;
+
+    private static final Comparator<Product> SKU_ORDER = Comparator.comparing(Product::getSku);
+    private static final Comparator<Product> NAME_ORDER =
+            Comparator.comparing(Product::getName, String.CASE_INSENSITIVE_ORDER).thenComparing(SKU_ORDER);
+    private static final Comparator<Product> PRICE_ORDER =
+            Comparator.comparingDouble(Product::getPrice).thenComparing(SKU_ORDER);
+    private static final Comparator<Product> STOCK_ORDER =
+            Comparator.comparingInt(Product::getStock).thenComparing(SKU_ORDER);
+    private final SkipList<String, Product> nameOrder = new SkipList<>(String.CASE_INSENSITIVE_ORDER, SKU_ORDER);
+    private final SkipList<Double, Product> priceOrder = new SkipList<>(Comparator.naturalOrder(), SKU_ORDER);
+    private final SkipList<Integer, Product> stockOrder = new SkipList<>(Comparator.naturalOrder(), SKU_ORDER);
 
     private final List<Product> fallback = new ArrayList<>();
 
+    // Every change is logged here once recover has attached it; null means no logging
+    private WriteAheadLog log;
+
+    public InventoryService() {
+        this(Storage.LINKED);
+    }
+
+    public InventoryService(Storage storage) {
+        this(storage, HashTable.Mode.OPEN_ADDRESSING);
+    }
+
+    // skuMode picks the SKU index's table. Open addressing (the default) has the fastest
+    // lookups; INCREMENTAL_CHAINING spreads each resize over later calls, so the add that
+    // grows a large catalog past its load factor does not pause for a full rehash. Loads
+    // pre-size the index either way
+    public InventoryService(Storage storage, HashTable.Mode skuMode) {
+        this(storage, ProductStore.SkuTables.of(skuMode));
+    }
+
+    InventoryService(Storage storage, ProductStore.SkuTables skuTables) {
+        this.storage = storage;
+        this.skuTables = skuTables;
+        products = ProductStore.create(storage, skuTables, 0);
+    }
+
     public void load(List<Product> list) {
         fallback.clear();
         fallback.addAll(list);
         try {
-            for (Product p : list) products.addLast(p);
             rebuildIndexes();
         } catch (UnsupportedOperationException ex) {
             System.out.println("(TODO) " + ex.getMessage());
@@ -32,11 +100,46 @@ public class InventoryService {
         }
     }
 
+    // Loads a CSV feed with the parallel loader (sequential for small files) and indexes it
+    public CsvLoader.Result loadCsv(String path) throws IOException {
+        CsvLoader.Result result = CsvLoader.loadParallel(path);
+        load(result.products);
+        return result;
+    }
+
+    // Loads a CSV feed without materializing it: rows are indexed in batches as they are
+    // parsed, into a fresh store (its SKU index pre-sized from the file size) and hash
+    // indexes, and the ordered views are built once at the end. Peak memory is the old
+    // catalog plus the new one, not the file. The fallback list is not filled. The new
+    // catalog replaces the old only once the whole file has been read; on an I/O error
+    // the old one stays as it was
+    public CsvLoader.Result loadStreaming(String path) throws IOException {
+        int expected = estimateRows(Paths.get(path));
+        ProductStore store = ProductStore.create(storage, skuTables, expected);
+        MultiHashTable<String, Product> names = new MultiHashTable<>();
+        CategoryIndex categories = new CategoryIndex();
+        BatchIndexer indexer = new BatchIndexer(store, names, categories);
+        CsvLoader.Result result = CsvLoader.stream(path, indexer);
+        indexer.flush();
+
+        fallback.clear();
+        products = store;
+        byName = names;
+        byCategory = categories;
+        rebuildViews();
+        return result;
+    }
+
     public boolean add(Product p) {
         try {
-            products.addLast(p);
-            bySku.put(p.getSku(), p);
-            byName.put(p.getName(), p);
+            if (lookup(p.getSku()) != null) return false;
+            if (log != null) logged(log.logAdd(p));
+            p = products.add(p);
+            byName.put(nameKey(p.getName()), p);
+            byCategory.add(p);
+            nameOrder.insert(p.getName(), p);
+            priceOrder.insert(p.getPrice(), p);
+            stockOrder.insert(p.getStock(), p);
             return true;
         } catch (UnsupportedOperationException ex) {
             System.out.println("(TODO) " + ex.getMessage());
@@ -47,16 +150,15 @@ public class InventoryService {
 
     public boolean removeBySku(String sku) {
         try {
-            int idx = 0;
-            for (Product p : products) {
-                if (p.getSku().equals(sku)) {
-                    products.removeAt(idx);
-                    bySku.remove(sku);
-                    byName.remove(p.getName());
-                    return true;
-                }
-                idx++;
-            }
+            if (lookup(sku) == null) return false;
+            if (log != null) logged(log.logRemove(sku));
+            Product p = products.remove(sku);
+            byName.remove(nameKey(p.getName()), p);
+            byCategory.remove(p);
+            nameOrder.remove(p.getName(), p);
+            priceOrder.remove(p.getPrice(), p);
+            stockOrder.remove(p.getStock(), p);
+            return true;
         } catch (UnsupportedOperationException ex) {
             System.out.println("(TODO) " + ex.getMessage());
         }
@@ -66,9 +168,14 @@ public class InventoryService {
 
     public boolean updatePrice(String sku, double newPrice) {
         try {
-            Product p = bySku.get(sku);
+            Product p = lookup(sku);
             if (p == null) return false;
+            if (log != null) logged(log.logPrice(sku, newPrice));
+            double oldPrice = p.getPrice();
             p.setPrice(newPrice);
+            byCategory.priceChanged(p, oldPrice);
+            priceOrder.remove(oldPrice, p);
+            priceOrder.insert(newPrice, p);
             return true;
         } catch (UnsupportedOperationException ex) {
             System.out.println("(TODO) " + ex.getMessage());
@@ -78,40 +185,97 @@ public class InventoryService {
     }
 
     public List<Product> list(String by) {
-        List<Product> items = new ArrayList<>(fallback);
         try {
-            Comparator<Product> cmp;
-            switch (by) {
-                case "price": cmp = Comparator.comparingDouble(Product::getPrice); break;
-                case "stock": cmp = Comparator.comparingInt(Product::getStock); break;
-                default: cmp = Comparator.comparing(Product::getName, String.CASE_INSENSITIVE_ORDER);
-            }
-            Product[] arr = items.toArray(new Product[0]);
-            Sorting.mergeSort(arr, cmp);
-            return Arrays.asList(arr);
+            return view(by).toList();
         } catch (UnsupportedOperationException ex) {
             System.out.println("(TODO) " + ex.getMessage() + " — showing unsorted list.");
-            return items;
+            return snapshot();
+        }
+    }
+
+    // One page of the catalog in the given order; O(log n + limit)
+    public List<Product> list(String by, int offset, int limit) {
+        return view(by).page(offset, limit);
+    }
+
+    // A paging position: the sort keys and SKU of the last product a page showed, copied
+    // when the page was read. Seeking by the copy rather than by the live product keeps the
+    // cursor valid after that product is repriced, restocked, sold out or removed
+    public static final class Cursor {
+        private final Product at;
+        private Cursor(Product at) { this.at = at; }
+
+        public static Cursor after(Product last) {
+            return new Cursor(new Product(last.getSku(), last.getName(), last.getCategoryCode(),
+                    last.getPrice(), last.getStock()));
+        }
+
+        public String sku() { return at.getSku(); }
+    }
+
+    // Cursor-based paging: the page that follows the cursor's (sort key, SKU) position.
+    // Pass null to start from the beginning
+    public List<Product> listAfter(String by, Cursor after, int limit) {
+        if (after == null) return list(by, 0, limit);
+        Product last = after.at;
+        switch (by) {
+            case "price": return priceOrder.pageAfter(last.getPrice(), last, limit);
+            case "stock": return stockOrder.pageAfter(last.getStock(), last, limit);
+            default: return nameOrder.pageAfter(last.getName(), last, limit);
+        }
+    }
+
+    // Lazy walk over the catalog in the given order
+    public Iterator<Product> iterate(String by) {
+        return view(by).iterator();
+    }
+
+    private static Comparator<Product> order(String by) {
+        switch (by) {
+            case "price": return PRICE_ORDER;
+            case "stock": return STOCK_ORDER;
+            default: return NAME_ORDER;
+        }
+    }
+
+    private SkipList<?, Product> view(String by) {
+        switch (by) {
+            case "price": return priceOrder;
+            case "stock": return stockOrder;
+            default: return nameOrder;
         }
     }
 
     public Product find(String key) {
         try {
-            Product p = bySku.get(key);
+            Product p = lookup(key);
             if (p != null) return p;
-            return byName.get(key);
+            return byName.first(nameKey(key));
         } catch (UnsupportedOperationException ex) {
             System.out.println("(TODO) " + ex.getMessage() + " — search disabled until implemented.");
             return null;
         }
     }
 
+    // All products whose name matches ignoring case; O(result), no catalog scan
+    public List<Product> findAllByName(String name) {
+        try {
+            return byName.get(nameKey(name));
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("(TODO) " + ex.getMessage() + " — search disabled until implemented.");
+            return new ArrayList<>();
+        }
+    }
+
     public boolean restock(String sku, int qty) {
         if (qty <= 0) return false;
         try {
-            Product p = bySku.get(sku);
+            Product p = lookup(sku);
             if (p == null) return false;
-            p.setStock(p.getStock() + qty);
+            if (log != null) logged(log.logStock(sku, qty));
+            int oldStock = p.getStock();
+            p.setStock(oldStock + qty);
+            stockChanged(p, oldStock);
             return true;
         } catch (UnsupportedOperationException ex) {
             System.out.println("(TODO) " + ex.getMessage());
@@ -129,15 +293,21 @@ public class InventoryService {
     public OrderResult order(String sku, int qty) {
         if (qty <= 0) return new OrderResult(false, "Quantity must be > 0");
         try {
-            Product p = bySku.get(sku);
+            Product p = lookup(sku);
             if (p == null) return new OrderResult(false, "SKU not found");
             if (p.getStock() < qty) return new OrderResult(false, "Insufficient stock");
-            int remaining = p.getStock() - qty;
-            p.setStock(remaining);
+            int oldStock = p.getStock();
+            int remaining = oldStock - qty;
             if (remaining == 0) {
+                // Unindex while the product still carries the stock the indexes know about.
+                // The removal is all the log needs
                 removeBySku(sku);
+                p.setStock(0);
                 return new OrderResult(true, "Order placed. Item is now out of stock and removed from inventory.");
             }
+            if (log != null) logged(log.logStock(sku, -qty));
+            p.setStock(remaining);
+            stockChanged(p, oldStock);
             return new OrderResult(true, "Order placed. Remaining stock: " + remaining);
         } catch (UnsupportedOperationException ex) {
             System.out.println("(TODO) " + ex.getMessage());
@@ -155,39 +325,518 @@ public class InventoryService {
         }
     }
 
-    public List<Product> lowStock(int threshold) {
+    // One line of a multi-line order
+    public static final class OrderLine {
+        public final String sku;
+        public final int qty;
+        public OrderLine(String sku, int qty) {
+            this.sku = Objects.requireNonNull(sku);
+            this.qty = qty;
+        }
+    }
+
+    // Outcome of orderBatch: ok if every line was filled, otherwise none was.
+    // codes[i] is LINE_OK if line i could be filled, else why not.
+    // In both services the cart is atomic: no other order, reservation or cart sees part
+    // of it taken
+    public static final class BatchResult {
+        public static final byte LINE_OK = 0;
+        public static final byte NOT_FOUND = 1;
+        public static final byte INSUFFICIENT_STOCK = 2;
+        public static final byte BAD_QUANTITY = 3;
+
+        public final boolean ok;
+        public final byte[] codes;
+        BatchResult(boolean ok, byte[] codes) { this.ok = ok; this.codes = codes; }
+    }
+
+    // All-or-nothing cart checkout. Lines are grouped by SKU, each SKU is looked up once,
+    // a group's lines are checked against stock together, and only if all lines can be
+    // filled are the decrements applied; products that reach zero are sold out as with order.
+    // The decrements are logged as one record, durable before any is applied, so the log
+    // never holds part of a cart; a crash before the sell-outs are logged leaves those
+    // products listed at zero stock
+    public BatchResult orderBatch(List<OrderLine> lines) {
+        int n = lines.size();
+        byte[] codes = new byte[n];
+        int[] order = skuOrder(lines);
+        Product[] resolved = resolveGroups(lines, order, codes, this::lookup);
+        markShortGroups(lines, order, resolved, codes);
+        if (!allOk(codes)) return new BatchResult(false, codes);
+
+        if (log != null) logged(logBatch(lines, order));
+        for (int g = 0; g < n; ) {
+            int end = groupEnd(lines, order, g);
+            Product p = resolved[g];
+            int oldStock = p.getStock();
+            int remaining = oldStock - (int) groupQty(lines, order, g, end);
+            if (remaining == 0) {
+                removeBySku(p.getSku());
+                p.setStock(0);
+            } else {
+                p.setStock(remaining);
+                stockChanged(p, oldStock);
+            }
+            g = end;
+        }
+        return new BatchResult(true, codes);
+    }
+
+    // One stock record for a validated cart: a decrement per SKU
+    private long logBatch(List<OrderLine> lines, int[] order) {
+        String[] skus = new String[order.length];
+        int[] deltas = new int[order.length];
+        int groups = 0;
+        for (int g = 0; g < order.length; ) {
+            int end = groupEnd(lines, order, g);
+            skus[groups] = lines.get(order[g]).sku;
+            deltas[groups++] = -(int) groupQty(lines, order, g, end);
+            g = end;
+        }
+        return log.logStock(skus, deltas, groups);
+    }
+
+    // Looks each SKU group up once and fills in BAD_QUANTITY and NOT_FOUND codes. Returns
+    // the group's product (or null) at the position in order where the group starts
+    static Product[] resolveGroups(List<OrderLine> lines, int[] order, byte[] codes, Function<String, Product> lookup) {
+        Product[] resolved = new Product[order.length];
+        for (int g = 0; g < order.length; ) {
+            int end = groupEnd(lines, order, g);
+            Product p = lookup.apply(lines.get(order[g]).sku);
+            resolved[g] = p;
+            for (int j = g; j < end; j++) {
+                int i = order[j];
+                if (lines.get(i).qty <= 0) {
+                    codes[i] = BatchResult.BAD_QUANTITY;
+                } else if (p == null) {
+                    codes[i] = BatchResult.NOT_FOUND;
+                }
+            }
+            g = end;
+        }
+        return resolved;
+    }
+
+    static boolean allOk(byte[] codes) {
+        for (byte c : codes) if (c != BatchResult.LINE_OK) return false;
+        return true;
+    }
+
+    // Marks the lines of every group whose product has less stock than the group asks for
+    // INSUFFICIENT_STOCK, unless they already have a code
+    static void markShortGroups(List<OrderLine> lines, int[] order, Product[] resolved, byte[] codes) {
+        for (int g = 0; g < order.length; ) {
+            int end = groupEnd(lines, order, g);
+            Product p = resolved[g];
+            if (p != null && p.getStock() < groupQty(lines, order, g, end)) markShort(codes, order, g, end);
+            g = end;
+        }
+    }
+
+    static void markShort(byte[] codes, int[] order, int from, int end) {
+        for (int j = from; j < end; j++) {
+            if (codes[order[j]] == BatchResult.LINE_OK) codes[order[j]] = BatchResult.INSUFFICIENT_STOCK;
+        }
+    }
+
+    // Line indices sorted by SKU, so lines for one SKU are adjacent. Carts are short,
+    // so an insertion sort does
+    static int[] skuOrder(List<OrderLine> lines) {
+        int[] order = new int[lines.size()];
+        for (int i = 0; i < order.length; i++) {
+            int j = i;
+            String sku = lines.get(i).sku;
+            while (j > 0 && lines.get(order[j - 1]).sku.compareTo(sku) > 0) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = i;
+        }
+        return order;
+    }
+
+    // End (exclusive) of the run of same-SKU lines starting at order[from]
+    static int groupEnd(List<OrderLine> lines, int[] order, int from) {
+        String sku = lines.get(order[from]).sku;
+        int end = from + 1;
+        while (end < order.length && lines.get(order[end]).sku.equals(sku)) end++;
+        return end;
+    }
+
+    // Total quantity of a run; long so many large lines cannot wrap around
+    static long groupQty(List<OrderLine> lines, int[] order, int from, int end) {
+        long qty = 0;
+        for (int j = from; j < end; j++) qty += lines.get(order[j]).qty;
+        return qty;
+    }
+
+    public static final class CategoryStats {
+        public final String category;
+        public final int count;
+        public final long totalStock;
+        public final double stockValue;
+        public final double minPrice;
+        public final double maxPrice;
+        CategoryStats(String category, int count, long totalStock, double stockValue, double minPrice, double maxPrice) {
+            this.category = category;
+            this.count = count;
+            this.totalStock = totalStock;
+            this.stockValue = stockValue;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+        }
+
+        @Override public String toString() {
+            return String.format("%s | items=%d | stock=%d | value=$%.2f | price $%.2f-$%.2f",
+                    category, count, totalStock, stockValue, minPrice, maxPrice);
+        }
+    }
+
+    // Running aggregates for one category, or null if it has no products
+    public CategoryStats categoryStats(String category) {
+        return byCategory.stats(category);
+    }
+
+    public List<CategoryStats> categoryStats() {
+        List<CategoryStats> out = new ArrayList<>();
+        for (String c : byCategory.categories()) out.add(byCategory.stats(c));
+        return out;
+    }
+
+    // One page of a category; O(limit). Stable while the category is unchanged (see
+    // CategoryIndex.page for the order)
+    public List<Product> listByCategory(String category, int offset, int limit) {
+        return byCategory.page(category, offset, limit);
+    }
+
+    // The first k products of a category in the given order, e.g. "50 cheapest Audio items".
+    // Bounded heap over the category: O(m log k) for m members instead of sorting all m
+    public List<Product> topInCategory(String category, String by, int k) {
+        Product[] members = byCategory.members(category).toArray(new Product[0]);
+        return Arrays.asList(Sorting.topK(members, k, order(by)));
+    }
+
+    // The k lowest-stock products of a category at or below threshold, lowest first
+    public List<Product> lowStock(String category, int threshold, int k) {
         List<Product> res = new ArrayList<>();
-        for (Product p : fallback) if (p.getStock() <= threshold) res.add(p);
+        for (Product p : byCategory.members(category)) if (p.getStock() <= threshold) res.add(p);
+        return Arrays.asList(Sorting.topK(res.toArray(new Product[0]), k, STOCK_ORDER));
+    }
+
+    // Products with min <= price <= max, at most limit, cheapest first when ascending;
+    // O(log n + k) from the price view
+    public List<Product> findByPriceRange(double min, double max, int limit, boolean ascending) {
+        return priceOrder.range(min, max, limit, ascending);
+    }
+
+    public List<Product> findByStockRange(int min, int max, int limit, boolean ascending) {
+        return stockOrder.range(min, max, limit, ascending);
+    }
+
+    public List<Product> lowStock(int threshold) {
         try {
-            Product[] arr = res.toArray(new Product[0]);
-            Sorting.selectionSort(arr, Comparator.comparingInt(Product::getStock));
-            return Arrays.asList(arr);
+            return findByStockRange(Integer.MIN_VALUE, threshold, Integer.MAX_VALUE, true);
         } catch (UnsupportedOperationException ex) {
             System.out.println("(TODO) " + ex.getMessage() + " — showing unsorted low-stock report.");
+            List<Product> res = new ArrayList<>();
+            for (Product p : fallback) if (p.getStock() <= threshold) res.add(p);
             return res;
         }
     }
 
     public void saveCsv(String path) throws IOException {
-        Path p = Paths.get(path);
-        Files.createDirectories(p.getParent());
-        try (BufferedWriter bw = Files.newBufferedWriter(p)) {
+        writeCsv(Paths.get(path), Product::getStock, false);
+    }
+
+    // stockOf gives the stock written for each product. With force the file is on disk,
+    // not just handed to the OS, when this returns
+    private void writeCsv(Path p, ToIntFunction<Product> stockOf, boolean force) throws IOException {
+        Files.createDirectories(p.toAbsolutePath().getParent());
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             BufferedWriter bw = new BufferedWriter(Channels.newWriter(ch, StandardCharsets.UTF_8))) {
             bw.write("sku,name,category,price,stock\n");
-            for (Product pr : fallback) {
-                bw.write(String.format("%s,%s,%s,%.2f,%d%n",
-                        pr.getSku(), pr.getName(), pr.getCategory(), pr.getPrice(), pr.getStock()));
+            // Prices are written exactly (Double.toString), not rounded, so a snapshot loads
+            // back to the catalog it was taken from; the WAL records are exact too
+            for (Product pr : snapshot()) {
+                bw.write(String.format(Locale.ROOT, "%s,%s,%s,%s,%d%n",
+                        CsvLoader.escape(pr.getSku()), CsvLoader.escape(pr.getName()), CsvLoader.escape(pr.getCategory()),
+                        Double.toString(pr.getPrice()), stockOf.applyAsInt(pr)));
+            }
+            bw.flush();
+            if (force) ch.force(true);
+        }
+    }
+
+    // What recover found: the snapshot load (null if there was no snapshot yet) and how
+    // many logged records were applied on top of it
+    public static final class Recovery {
+        public final CsvLoader.Result snapshot;
+        public final long replayed;
+        Recovery(CsvLoader.Result snapshot, long replayed) {
+            this.snapshot = snapshot;
+            this.replayed = replayed;
+        }
+    }
+
+    // Brings the catalog back to where it was when the process last stopped, crash or not:
+    // loads the snapshot, replays the changes logged since it was taken, and then logs
+    // every change to walPath before returning from it, durable as policy says.
+    // load, loadCsv and loadStreaming are not logged; follow them with checkpoint
+    public Recovery recover(String snapshotPath, String walPath, WriteAheadLog.FsyncPolicy policy) throws IOException {
+        closeLog();
+        Recovery r = restore(snapshotPath, walPath);
+        log = WriteAheadLog.open(Paths.get(walPath), policy);
+        return r;
+    }
+
+    // Writes the catalog as the new snapshot and empties the log
+    public void checkpoint(String snapshotPath) throws IOException {
+        if (log == null) throw new IllegalStateException("No log attached; call recover first");
+        checkpoint(snapshotPath, log, Product::getStock);
+    }
+
+    // Writes out and closes the log; changes are no longer logged
+    public void closeLog() throws IOException {
+        if (log == null) return;
+        WriteAheadLog l = log;
+        log = null;
+        l.close();
+    }
+
+    // Snapshot files: the next snapshot is written to <snapshot>.new, and <snapshot>.done
+    // marks it complete, covering every rolled log segment. Steps:
+    //  1. roll the log, so changes from here on go to a fresh file;
+    //  2. write and force <snapshot>.new;
+    //  3. create the marker: the checkpoint is now committed;
+    //  4. move the new snapshot into place, delete the segments, delete the marker.
+    // restore finishes a checkpoint that crashed after step 3 and discards one that crashed
+    // before it. Nothing may change the catalog meanwhile
+    void checkpoint(String snapshotPath, WriteAheadLog wal, ToIntFunction<Product> stockOf) throws IOException {
+        Path snapshot = Paths.get(snapshotPath);
+        Path fresh = snapshot.resolveSibling(snapshot.getFileName() + ".new");
+        Path marker = snapshot.resolveSibling(snapshot.getFileName() + ".done");
+        wal.roll();
+        writeCsv(fresh, stockOf, true);
+        Files.createFile(marker);
+        WriteAheadLog.syncDirectory(marker);
+        finishCheckpoint(snapshot, fresh, marker, wal.path());
+    }
+
+    private static void finishCheckpoint(Path snapshot, Path fresh, Path marker, Path walPath) throws IOException {
+        if (Files.exists(fresh)) {
+            Files.move(fresh, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        WriteAheadLog.deleteSegments(walPath);
+        WriteAheadLog.syncDirectory(snapshot);
+        Files.delete(marker);
+    }
+
+    // Loads the snapshot and replays the log segments and then the log itself, without
+    // logging anything
+    Recovery restore(String snapshotPath, String walPath) throws IOException {
+        Path snapshot = Paths.get(snapshotPath), wal = Paths.get(walPath);
+        Path fresh = snapshot.resolveSibling(snapshot.getFileName() + ".new");
+        Path marker = snapshot.resolveSibling(snapshot.getFileName() + ".done");
+        if (Files.exists(marker)) {
+            finishCheckpoint(snapshot, fresh, marker, wal);
+        } else {
+            // Half-written: the old snapshot and the segments still hold everything
+            Files.deleteIfExists(fresh);
+        }
+
+        CsvLoader.Result loaded = null;
+        if (Files.exists(snapshot)) {
+            loaded = loadCsv(snapshotPath);
+        } else {
+            load(new ArrayList<>());
+        }
+        Replayer replayer = new Replayer();
+        long replayed = 0;
+        for (Path segment : WriteAheadLog.segments(wal)) replayed += WriteAheadLog.replay(segment, replayer);
+        if (Files.exists(wal)) replayed += WriteAheadLog.replay(wal, replayer);
+        replayer.sellOut();
+        return new Recovery(loaded, replayed);
+    }
+
+    // Applies logged changes through the normal mutations; the log is detached meanwhile.
+    // A sell-out is logged as a stock record and then a separate removal, so a crash in
+    // between leaves the product at zero. Products that stock records take to zero are
+    // removed once the whole log is replayed (sellOut), not at once: in the concurrent
+    // service a restock can still land between the decrement and the removal, and then
+    // the product stays listed
+    private final class Replayer implements WriteAheadLog.Replay {
+        private final List<Product> zeroed = new ArrayList<>();
+
+        public void add(Product p) { InventoryService.this.add(p); }
+        public void remove(String sku) { removeBySku(sku); }
+        public void price(String sku, double price) { updatePrice(sku, price); }
+
+        public void stock(String sku, int delta) {
+            Product p = lookup(sku);
+            if (p == null) return;
+            int oldStock = p.getStock();
+            p.setStock(oldStock + delta);
+            stockChanged(p, oldStock);
+            if (p.getStock() == 0) zeroed.add(p);
+        }
+
+        // Removes the products stock records left at zero and still listed
+        void sellOut() {
+            for (Product p : zeroed) {
+                if (p.getStock() == 0 && lookup(p.getSku()) == p) removeBySku(p.getSku());
             }
         }
     }
 
+    // Waits until a change appended at lsn is durable. Every mutation validates, appends
+    // and waits before it applies anything, so a change the log cannot take is not made
+    private void logged(long lsn) {
+        try {
+            log.await(lsn);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Change not logged, so not applied", ex);
+        }
+    }
+
+    // Case-insensitive name key, computed once when indexing and once per query
+    private static String nameKey(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Moves p in the stock-dependent indexes from oldStock to its current stock
+    void stockChanged(Product p, int oldStock) {
+        byCategory.stockChanged(p, oldStock);
+        stockOrder.remove(oldStock, p);
+        stockOrder.insert(p.getStock(), p);
+    }
+
+    // Needs no lock alongside a writer when the SKU tables are SkuTables.CONCURRENT: a load
+    // swaps in a complete store, and other changes touch the one table
+    Product lookup(String sku) {
+        return products.get(sku);
+    }
+
+    // The product store is the source of truth; fallback only backs the TODO paths
+    List<Product> snapshot() {
+        List<Product> items = new ArrayList<>(products.size());
+        for (Product p : products) items.add(p);
+        return items;
+    }
+
+    // Sorts the catalog once per view and appends in order, without the per-element
+    // search of n individual inserts. One comparison sort by SKU establishes the
+    // tie-break order; price and stock are then stable key sorts of that order
+    private void rebuildViews() {
+        Product[] bySkuOrder = snapshot().toArray(new Product[0]);
+        // One merge buffer shared by the comparison sorts
+        Product[] buf = new Product[bySkuOrder.length];
+        boolean parallel = bySkuOrder.length >= PARALLEL_SORT_CUTOFF;
+        sort(bySkuOrder, SKU_ORDER, buf, parallel);
+
+        Product[] arr = Arrays.copyOf(bySkuOrder, bySkuOrder.length);
+        if (pricesInCents(arr)) {
+            Sorting.radixSortByLong(arr, p -> Math.round(p.getPrice() * 100.0));
+        } else {
+            sort(arr, PRICE_ORDER, buf, parallel);
+        }
+        priceOrder.clear();
+        for (Product p : arr) priceOrder.addLast(p.getPrice(), p);
+
+        System.arraycopy(bySkuOrder, 0, arr, 0, arr.length);
+        Sorting.radixSortByInt(arr, Product::getStock);
+        stockOrder.clear();
+        for (Product p : arr) stockOrder.addLast(p.getStock(), p);
+
+        sort(bySkuOrder, NAME_ORDER, buf, parallel);
+        nameOrder.clear();
+        for (Product p : bySkuOrder) nameOrder.addLast(p.getName(), p);
+    }
+
+    // True when every price is a whole number of cents, so ordering by the rounded cent
+    // value matches Double.compare exactly
+    private static boolean pricesInCents(Product[] arr) {
+        for (Product p : arr) {
+            if (Double.compare(Math.round(p.getPrice() * 100.0) / 100.0, p.getPrice()) != 0) return false;
+        }
+        return true;
+    }
+
+    private static void sort(Product[] arr, Comparator<Product> cmp, Product[] buf, boolean parallel) {
+        if (parallel) {
+            Sorting.parallelMergeSort(arr, cmp);
+        } else {
+            Sorting.mergeSort(arr, cmp, buf);
+        }
+    }
+
     private void rebuildIndexes() {
         try {
-            for (Product p : fallback) {
-                bySku.put(p.getSku(), p);
-                byName.put(p.getName(), p);
-            }
+            // Pre-sized for the whole catalog so building the indexes never resizes
+            ProductStore store = ProductStore.create(storage, skuTables, fallback.size());
+            MultiHashTable<String, Product> names = new MultiHashTable<>(fallback.size());
+            CategoryIndex categories = new CategoryIndex();
+            for (Product p : fallback) index(store, names, categories, p);
+            products = store;
+            byName = names;
+            byCategory = categories;
+            rebuildViews();
         } catch (UnsupportedOperationException ex) {
             System.out.println("(TODO) " + ex.getMessage());
         }
     }
+
+    // Row count of a CSV file extrapolated from the newlines in its first block, so the
+    // estimate follows the feed's actual row length
+    private static int estimateRows(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            ByteBuffer sample = ByteBuffer.allocate((int) Math.min(size, STREAM_SAMPLE_BYTES));
+            while (sample.hasRemaining() && ch.read(sample) > 0) { }
+            int lines = 0;
+            for (int i = 0; i < sample.position(); i++) {
+                if (sample.get(i) == '\n') lines++;
+            }
+            if (lines == 0) return 0;
+            // Only a sizing hint: clamped so a huge feed cannot ask for an absurd table
+            return (int) Math.min(size * lines / sample.position(), STREAM_MAX_PRESIZE);
+        }
+    }
+
+    // Adds p to the store and the hash indexes (not the ordered views)
+    private static void index(ProductStore store, MultiHashTable<String, Product> names, CategoryIndex categories, Product p) {
+        // A repeated SKU would leave an unreachable node behind; keep the first row
+        p = store.add(p);
+        if (p == null) return;
+        names.put(nameKey(p.getName()), p);
+        categories.add(p);
+    }
+
+    // Collects streamed products and indexes them a batch at a time into the given
+    // structures, which the service adopts only after the whole file has been read
+    private static final class BatchIndexer implements Consumer<Product> {
+        private final Product[] batch = new Product[STREAM_BATCH];
+        private final ProductStore store;
+        private final MultiHashTable<String, Product> names;
+        private final CategoryIndex categories;
+        private int size;
+
+        BatchIndexer(ProductStore store, MultiHashTable<String, Product> names, CategoryIndex categories) {
+            this.store = store;
+            this.names = names;
+            this.categories = categories;
+        }
+
+        public void accept(Product p) {
+            batch[size++] = p;
+            if (size == batch.length) flush();
+        }
+
+        void flush() {
+            for (int i = 0; i < size; i++) {
+                index(store, names, categories, batch[i]);
+                batch[i] = null;
+            }
+            size = 0;
+        }
+    }
 }
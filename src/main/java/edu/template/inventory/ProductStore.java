@@ -0,0 +1,163 @@
+package edu.template.inventory;
+
+import edu.template.inventory.ds.ConcurrentHashTable;
+import edu.template.inventory.ds.DoublyLinkedList;
+import edu.template.inventory.ds.HashTable;
+import edu.template.inventory.ds.Table;
+import edu.template.inventory.ds.UnrolledLinkedList;
+import edu.template.inventory.model.Product;
+
+import java.util.Iterator;
+
+// Primary product storage: the catalog list plus the SKU index pointing into it.
+// The SKU table keeps each element's list handle, so removal by SKU never searches the list.
+// Changes need one writer at a time; with a concurrent SKU table, get may also run without
+// a lock alongside that writer (the list itself is never read that way)
+abstract class ProductStore implements Iterable<Product> {
+
+    // Makes the SKU index table
+    abstract static class SkuTables {
+        abstract <V> Table<String, V> create(int expected);
+
+        static SkuTables of(HashTable.Mode mode) {
+            return new SkuTables() {
+                <V> Table<String, V> create(int expected) { return new HashTable<>(mode, expected); }
+            };
+        }
+
+        // For lock-free lookups while one writer holds the catalog
+        static final SkuTables CONCURRENT = new SkuTables() {
+            <V> Table<String, V> create(int expected) { return new ConcurrentHashTable<>(expected); }
+        };
+    }
+
+    // An empty store whose SKU index is pre-sized for expected products
+    static ProductStore create(InventoryService.Storage storage, SkuTables tables, int expected) {
+        switch (storage) {
+            case UNROLLED: return new UnrolledStore(tables.create(expected));
+            case COLUMNAR: return new ColumnarStore(tables.create(expected), expected);
+            default: return new LinkedStore(tables.create(expected));
+        }
+    }
+
+    abstract int size();
+
+    abstract boolean contains(String sku);
+
+    abstract Product get(String sku);
+
+    // Appends p and returns the stored product, which callers index in place of p (the
+    // same object except in a columnar store); null (and nothing stored) if the SKU is present
+    abstract Product add(Product p);
+
+    // Removes and returns the product with this SKU, or null
+    abstract Product remove(String sku);
+
+    // One heap node per product; O(1) unlink through the node handle
+    private static final class LinkedStore extends ProductStore {
+        private final DoublyLinkedList<Product> products = new DoublyLinkedList<>();
+        private final Table<String, DoublyLinkedList.Node<Product>> bySku;
+
+        LinkedStore(Table<String, DoublyLinkedList.Node<Product>> bySku) {
+            this.bySku = bySku;
+        }
+
+        int size() { return products.size(); }
+
+        boolean contains(String sku) { return bySku.containsKey(sku); }
+
+        Product get(String sku) {
+            DoublyLinkedList.Node<Product> node = bySku.get(sku);
+            return node == null ? null : node.item;
+        }
+
+        Product add(Product p) {
+            if (bySku.containsKey(p.getSku())) return null;
+            bySku.put(p.getSku(), products.addLast(p));
+            return p;
+        }
+
+        Product remove(String sku) {
+            DoublyLinkedList.Node<Product> node = bySku.remove(sku);
+            return node == null ? null : products.unlink(node);
+        }
+
+        public Iterator<Product> iterator() { return products.iterator(); }
+    }
+
+    // Array chunks: fewer, denser nodes to chase on traversal. Removal scans one chunk
+    private static final class UnrolledStore extends ProductStore {
+        private final UnrolledLinkedList<Product> products = new UnrolledLinkedList<>();
+        // SKU -> (chunk handle, product); the product is kept so lookups need not scan the chunk
+        private final Table<String, Entry> bySku;
+
+        UnrolledStore(Table<String, Entry> bySku) {
+            this.bySku = bySku;
+        }
+
+        private static final class Entry {
+            final UnrolledLinkedList.Chunk<Product> chunk;
+            final Product product;
+            Entry(UnrolledLinkedList.Chunk<Product> chunk, Product product) {
+                this.chunk = chunk;
+                this.product = product;
+            }
+        }
+
+        int size() { return products.size(); }
+
+        boolean contains(String sku) { return bySku.containsKey(sku); }
+
+        Product get(String sku) {
+            Entry e = bySku.get(sku);
+            return e == null ? null : e.product;
+        }
+
+        Product add(Product p) {
+            if (bySku.containsKey(p.getSku())) return null;
+            bySku.put(p.getSku(), new Entry(products.addLast(p), p));
+            return p;
+        }
+
+        Product remove(String sku) {
+            Entry e = bySku.remove(sku);
+            return e == null ? null : products.remove(e.chunk, e.product);
+        }
+
+        public Iterator<Product> iterator() { return products.iterator(); }
+    }
+
+    // Values in off-heap columns (ColumnarProductStore.forService); the SKU table maps to
+    // each row's view, which is the Product the service indexes. Removal frees the row
+    // for the next add, and the removed view keeps its last values
+    private static final class ColumnarStore extends ProductStore {
+        private final ColumnarProductStore rows;
+        private final Table<String, Product> bySku;
+
+        ColumnarStore(Table<String, Product> bySku, int expected) {
+            this.bySku = bySku;
+            this.rows = ColumnarProductStore.forService(expected);
+        }
+
+        int size() { return rows.size(); }
+
+        boolean contains(String sku) { return bySku.containsKey(sku); }
+
+        Product get(String sku) { return bySku.get(sku); }
+
+        Product add(Product p) {
+            if (bySku.containsKey(p.getSku())) return null;
+            Product view = rows.append(p);
+            bySku.put(p.getSku(), view);
+            return view;
+        }
+
+        Product remove(String sku) {
+            Product view = bySku.remove(sku);
+            if (view != null) rows.remove(view);
+            return view;
+        }
+
+        public Iterator<Product> iterator() { return rows.iterator(); }
+    }
+}
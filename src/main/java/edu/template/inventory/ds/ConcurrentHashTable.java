@@ -0,0 +1,317 @@
+package edu.template.inventory.ds;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+// Hash table for many threads, same put/get/remove/containsKey/forEach API as HashTable.
+// Chained bins in a power-of-two array:
+//  - get never locks: bin heads are read with volatile semantics and chain links and values
+//    are volatile, so a reader always sees a complete chain;
+//  - put into an empty bin is a single CAS of the new node into the slot; a bin that
+//    already has nodes is changed under a lock on its head node, so writers contend only
+//    when they hit the same bin;
+//  - resizing is cooperative: the old array is split into strides that threads claim with
+//    a CAS, and any writer that runs into a moved bin joins in before retrying. A moved
+//    bin holds a Forward node pointing at the new array, where readers continue, so the
+//    table never stops serving lookups while it grows.
+// Nodes are copied, not relinked, when they move, which keeps chains intact for readers
+// still walking the old array. Keys and values must not be null.
+// forEach is weakly consistent: it sees each entry present for the whole walk exactly
+// once and may or may not see concurrent changes
+public class ConcurrentHashTable<K,V> implements Table<K,V> {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    // Hash of a Forward node; real hashes are masked to non-negative
+    private static final int MOVED = -1;
+    // Old bins claimed per step of a resize
+    private static final int MIN_STRIDE = 16;
+
+    private static class Node<K,V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K,V> next;
+
+        Node(int hash, K key, V value, Node<K,V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    // Placed in a bin once its nodes have been copied to the next array
+    private static final class Forward<K,V> extends Node<K,V> {
+        final Node<K,V>[] nextTable;
+
+        Forward(Node<K,V>[] nextTable) {
+            super(MOVED, null, null, null);
+            this.nextTable = nextTable;
+        }
+    }
+
+    private volatile Node<K,V>[] table;
+    // Array being filled during a resize; null otherwise
+    private volatile Node<K,V>[] nextTable;
+    // >= 0: entry count that triggers the next resize.
+    // -1: a resize is being set up or committed (no one may join).
+    // < -1: a resize is running with -(sizeCtl + 1) threads migrating
+    private volatile int sizeCtl;
+    // Old bins below this index are still unclaimed by the running resize
+    private volatile int transferIndex;
+    // Striped counter: inserts from many threads do not all hit one cache line
+    private final LongAdder count = new LongAdder();
+
+    private static final VarHandle BINS = MethodHandles.arrayElementVarHandle(Node[].class);
+    private static final VarHandle SIZE_CTL;
+    private static final VarHandle TRANSFER_INDEX;
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            SIZE_CTL = l.findVarHandle(ConcurrentHashTable.class, "sizeCtl", int.class);
+            TRANSFER_INDEX = l.findVarHandle(ConcurrentHashTable.class, "transferIndex", int.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    public ConcurrentHashTable() {
+        this(0);
+    }
+
+    // Pre-sized table: inserting up to expectedEntries keys never triggers a resize
+    public ConcurrentHashTable(int expectedEntries) {
+        if (expectedEntries < 0) {
+            throw new IllegalArgumentException("expectedEntries must be >= 0: " + expectedEntries);
+        }
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < MAX_CAPACITY && threshold(capacity) < expectedEntries) capacity *= 2;
+        table = newTable(capacity);
+        sizeCtl = threshold(capacity);
+    }
+
+    // Load factor 0.75
+    private static int threshold(int capacity) {
+        return capacity - (capacity >>> 2);
+    }
+
+    private static <K,V> Node<K,V>[] newTable(int capacity) {
+        return (Node<K,V>[]) new Node[capacity];
+    }
+
+    private static <K,V> Node<K,V> binAt(Node<K,V>[] tab, int i) {
+        return (Node<K,V>) BINS.getAcquire(tab, i);
+    }
+
+    private static <K,V> boolean casBin(Node<K,V>[] tab, int i, Node<K,V> expected, Node<K,V> bin) {
+        return BINS.compareAndSet(tab, i, expected, bin);
+    }
+
+    private static <K,V> void setBin(Node<K,V>[] tab, int i, Node<K,V> bin) {
+        BINS.setRelease(tab, i, bin);
+    }
+
+    // Spreads the high bits down and clears the sign bit, which is reserved for MOVED
+    private static int spread(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & 0x7FFFFFFF;
+    }
+
+    public int size() {
+        long n = count.sum();
+        return n < 0 ? 0 : (int) Math.min(n, Integer.MAX_VALUE);
+    }
+
+    public boolean isEmpty() { return size() == 0; }
+
+    public V get(K key) {
+        int h = spread(key);
+        Node<K,V>[] tab = table;
+        for (;;) {
+            Node<K,V> e = binAt(tab, h & (tab.length - 1));
+            if (e instanceof Forward) {
+                tab = ((Forward<K,V>) e).nextTable;
+                continue;
+            }
+            for (; e != null; e = e.next) {
+                if (e.hash == h && (e.key == key || e.key.equals(key))) return e.value;
+            }
+            return null;
+        }
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    public V put(K key, V value) {
+        Objects.requireNonNull(value);
+        int h = spread(key);
+        Node<K,V>[] tab = table;
+        for (;;) {
+            int i = h & (tab.length - 1);
+            Node<K,V> f = binAt(tab, i);
+            if (f == null) {
+                if (casBin(tab, i, null, new Node<>(h, key, value, null))) break;
+            } else if (f instanceof Forward) {
+                tab = helpResize((Forward<K,V>) f);
+            } else {
+                synchronized (f) {
+                    // Another writer may have replaced the head (removal or migration)
+                    if (binAt(tab, i) != f) continue;
+                    Node<K,V> e = f;
+                    for (;;) {
+                        if (e.hash == h && (e.key == key || e.key.equals(key))) {
+                            V old = e.value;
+                            e.value = value;
+                            return old;
+                        }
+                        if (e.next == null) {
+                            e.next = new Node<>(h, key, value, null);
+                            break;
+                        }
+                        e = e.next;
+                    }
+                }
+                break;
+            }
+        }
+        count.increment();
+        maybeResize();
+        return null;
+    }
+
+    public V remove(K key) {
+        int h = spread(key);
+        Node<K,V>[] tab = table;
+        for (;;) {
+            int i = h & (tab.length - 1);
+            Node<K,V> f = binAt(tab, i);
+            if (f == null) return null;
+            if (f instanceof Forward) {
+                tab = helpResize((Forward<K,V>) f);
+                continue;
+            }
+            synchronized (f) {
+                if (binAt(tab, i) != f) continue;
+                for (Node<K,V> e = f, pred = null; e != null; pred = e, e = e.next) {
+                    if (e.hash == h && (e.key == key || e.key.equals(key))) {
+                        if (pred == null) setBin(tab, i, e.next); else pred.next = e.next;
+                        count.decrement();
+                        return e.value;
+                    }
+                }
+                return null;
+            }
+        }
+    }
+
+    public void forEach(BiConsumer<K,V> consumer) {
+        Node<K,V>[] tab = table;
+        for (int i = 0; i < tab.length; i++) forEachInBin(tab, i, consumer);
+    }
+
+    // A moved bin's entries now live in bins i and i + n of the next array
+    private static <K,V> void forEachInBin(Node<K,V>[] tab, int i, BiConsumer<K,V> consumer) {
+        Node<K,V> e = binAt(tab, i);
+        if (e instanceof Forward) {
+            Node<K,V>[] next = ((Forward<K,V>) e).nextTable;
+            forEachInBin(next, i, consumer);
+            forEachInBin(next, i + tab.length, consumer);
+            return;
+        }
+        for (; e != null; e = e.next) consumer.accept(e.key, e.value);
+    }
+
+    // ---------------------------------------------------------------------
+    // Cooperative resizing
+    // ---------------------------------------------------------------------
+
+    // Starts a resize once the count passes the threshold
+    private void maybeResize() {
+        int sc;
+        while ((sc = sizeCtl) >= 0 && count.sum() >= sc) {
+            Node<K,V>[] tab = table;
+            if (tab.length >= MAX_CAPACITY) return;
+            if (!SIZE_CTL.compareAndSet(this, sc, -1)) continue;
+            // Set up while no one can join, then open the resize with this thread in it
+            nextTable = newTable(tab.length * 2);
+            transferIndex = tab.length;
+            sizeCtl = -2;
+            migrate();
+        }
+    }
+
+    // Joins the resize that moved a bin, if it is still running, and returns the array
+    // the caller should retry on
+    private Node<K,V>[] helpResize(Forward<K,V> f) {
+        int sc;
+        while (nextTable == f.nextTable && (sc = sizeCtl) < -1) {
+            if (SIZE_CTL.compareAndSet(this, sc, sc - 1)) {
+                migrate();
+                break;
+            }
+        }
+        return f.nextTable;
+    }
+
+    // Claims strides of old bins until none are left, then leaves; the last thread out
+    // publishes the new array. Called with this thread counted in sizeCtl, so table and
+    // nextTable cannot change underneath it
+    private void migrate() {
+        Node<K,V>[] tab = table;
+        Node<K,V>[] next = nextTable;
+        int n = tab.length;
+        int stride = Math.max(MIN_STRIDE, n / (8 * Runtime.getRuntime().availableProcessors()));
+        Forward<K,V> fwd = new Forward<>(next);
+        for (;;) {
+            int hi = transferIndex;
+            if (hi <= 0) break;
+            int lo = Math.max(0, hi - stride);
+            if (!TRANSFER_INDEX.compareAndSet(this, hi, lo)) continue;
+            for (int i = hi - 1; i >= lo; i--) migrateBin(tab, next, i, fwd);
+        }
+
+        for (;;) {
+            int sc = sizeCtl;
+            if (SIZE_CTL.compareAndSet(this, sc, sc + 1)) {
+                if (sc + 1 == -1) {
+                    table = next;
+                    nextTable = null;
+                    sizeCtl = threshold(next.length);
+                }
+                return;
+            }
+        }
+    }
+
+    // Splits bin i into bins i and i + n of next by the hash bit n, then forwards it
+    private static <K,V> void migrateBin(Node<K,V>[] tab, Node<K,V>[] next, int i, Forward<K,V> fwd) {
+        int n = tab.length;
+        for (;;) {
+            Node<K,V> f = binAt(tab, i);
+            if (f == null) {
+                if (casBin(tab, i, null, fwd)) return;
+                continue;
+            }
+            synchronized (f) {
+                if (binAt(tab, i) != f) continue;
+                Node<K,V> lo = null, hi = null;
+                for (Node<K,V> e = f; e != null; e = e.next) {
+                    if ((e.hash & n) == 0) {
+                        lo = new Node<>(e.hash, e.key, e.value, lo);
+                    } else {
+                        hi = new Node<>(e.hash, e.key, e.value, hi);
+                    }
+                }
+                setBin(next, i, lo);
+                setBin(next, i + n, hi);
+                setBin(tab, i, fwd);
+                return;
+            }
+        }
+    }
+}
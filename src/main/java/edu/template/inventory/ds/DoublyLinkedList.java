@@ -0,0 +1,164 @@
+package edu.template.inventory.ds;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+// Doubly linked list whose addLast/addFirst return the node as a handle, so a caller that
+// keeps the handle (e.g. in a HashTable) can unlink the element in O(1) without searching
+public class DoublyLinkedList<T> implements Iterable<T> {
+    public static final class Node<T> {
+        public T item;
+        Node<T> prev;
+        Node<T> next;
+        Node(T item, Node<T> prev, Node<T> next) {
+            this.item = item;
+            this.prev = prev;
+            this.next = next;
+        }
+    }
+
+    public DoublyLinkedList() {
+        // Circular sentinel: sentinel.next is the first node, sentinel.prev the last
+        sentinel = new Node<>(null, null, null);
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+        size = 0;
+    }
+
+    private int size = 0;
+    private final Node<T> sentinel;
+
+    public int size() {return size; }
+
+    public boolean isEmpty() {return size == 0;}
+
+    // Links a new node between prev and prev.next
+    private Node<T> linkAfter(Node<T> prev, T item) {
+        Node<T> node = new Node<>(item, prev, prev.next);
+        prev.next.prev = node;
+        prev.next = node;
+        size = size + 1;
+        return node;
+    }
+
+    public Node<T> addFirst(T item) {
+        return linkAfter(sentinel, item);
+    }
+
+    public Node<T> addLast(T item) {
+        return linkAfter(sentinel.prev, item);
+    }
+
+    public void addAll(Iterable<? extends T> items) {
+        for (T item : items) {
+            linkAfter(sentinel.prev, item);
+        }
+    }
+
+    // Removes node from this list in O(1). The node must currently belong to this list
+    public T unlink(Node<T> node) {
+        if (node == null || node == sentinel || node.next == null) {
+            throw new IllegalArgumentException("Node is not linked");
+        }
+
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        // Clear links so a stale handle cannot corrupt the list if it is unlinked twice
+        node.prev = null;
+        node.next = null;
+        size = size - 1;
+
+        return node.item;
+    }
+
+    public T removeFirst() {
+        if (isEmpty()){
+            throw new NoSuchElementException("It is empty.");
+        }
+        return unlink(sentinel.next);
+    }
+
+    public T removeLast() {
+        if (isEmpty()){
+            throw new NoSuchElementException("It is empty.");
+        }
+        return unlink(sentinel.prev);
+    }
+
+    // Walks from whichever end is closer to index
+    private Node<T> node(int index) {
+        if (index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        Node<T> p;
+        if (index < size / 2) {
+            p = sentinel.next;
+            for (int i = 0; i < index; i++) {
+                p = p.next;
+            }
+        } else {
+            p = sentinel.prev;
+            for (int i = size - 1; i > index; i--) {
+                p = p.prev;
+            }
+        }
+        return p;
+    }
+
+    public T get(int index) {
+        return node(index).item;
+    }
+
+    public T set(int index, T item) {
+        Node<T> p = node(index);
+        T oldItem = p.item;
+        p.item = item;
+        return oldItem;
+    }
+
+    public T removeAt(int index) {
+        return unlink(node(index));
+    }
+
+    public void clear() {
+        // Detach every node so handles still held by callers read as unlinked
+        Node<T> p = sentinel.next;
+        while (p != sentinel) {
+            Node<T> next = p.next;
+            p.prev = null;
+            p.next = null;
+            p = next;
+        }
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+        size = 0;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private Node<T> current = sentinel.next;
+
+            public boolean hasNext() {return current != sentinel;}
+
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("No more elements");
+                }
+
+                T item = current.item;
+                current = current.next;
+
+                return item;
+            }
+
+            public void forEachRemaining(Consumer<? super T> action) {
+                while (hasNext()) {
+                    action.accept(next());
+                }
+            }
+        };
+    }
+}
@@ -2,14 +2,39 @@ package edu.template.inventory.ds;
 
 import java.util.function.BiConsumer;
 
-// Hash Table implementation using Separate Chaining
-public class HashTable<K,V> {
+// Hash Table implementation using Separate Chaining (default) or Open Addressing
+public class HashTable<K,V> implements Table<K,V> {
+    // CHAINING keeps a SinglyLinkedList per bucket; INCREMENTAL_CHAINING does the same but
+    // spreads each resize over later put/remove calls instead of rehashing everything at once;
+    // OPEN_ADDRESSING stores entries in parallel key/value/hash arrays and resolves
+    // collisions by linear probing
+    public enum Mode { CHAINING, INCREMENTAL_CHAINING, OPEN_ADDRESSING }
+
     private int size;
     private static final int INITIAL_CAPACITY = 16;
+    // Largest power-of-two array length; the table stops growing here
+    private static final int MAX_CAPACITY = 1 << 30;
     private static final double LOAD_FACTOR = 0.75;
+    // Probe sequences grow quickly past ~0.7, so open addressing resizes earlier
+    private static final double OPEN_LOAD_FACTOR = 0.6;
+    private final Mode mode;
     // Buckets are implemented as an array of SinglyLinkedLists to handle collisions
     private SinglyLinkedList<Entry<K,V>>[] buckets;
 
+    // While an incremental resize is in progress, entries still living in oldBuckets
+    // at index >= migrateIndex (or in a bucket not yet drained) are found there
+    private SinglyLinkedList<Entry<K,V>>[] oldBuckets;
+    private int migrateIndex;
+    // Old buckets moved per mutating call; 4 keeps each step tiny yet always finishes
+    // the migration long before the new array reaches its own threshold
+    private static final int MIGRATE_STEP = 4;
+
+    // Open addressing storage: slot i is empty when keys[i] == null.
+    // hashes[i] caches the spread hash code so probes rarely call equals()
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+
     private static final class Entry<K,V> {
         final K key;
         V value;
@@ -20,26 +45,79 @@ public class HashTable<K,V> {
         }
     }
 
-    // Doubles the table capacity and rehashes all existing entries
-    private void resize() {
-        int newCapacity = buckets.length * 2;
+    private static <K,V> SinglyLinkedList<Entry<K,V>>[] newBuckets(int capacity) {
         SinglyLinkedList<Entry<K,V>>[] newBuckets =
-                (SinglyLinkedList<Entry<K,V>>[]) new SinglyLinkedList[newCapacity];
+                (SinglyLinkedList<Entry<K,V>>[]) new SinglyLinkedList[capacity];
 
-        for (int i = 0; i < newCapacity; i++) {
+        for (int i = 0; i < capacity; i++) {
             newBuckets[i] = new SinglyLinkedList<>();
         }
+        return newBuckets;
+    }
+
+    // Doubles the table capacity and rehashes all existing entries. At MAX_CAPACITY chains
+    // just grow longer
+    private void resize() {
+        if (buckets.length >= MAX_CAPACITY) return;
+        if (mode == Mode.INCREMENTAL_CHAINING) {
+            // Keep the old array alive; put/remove migrate it a few buckets at a time
+            oldBuckets = buckets;
+            migrateIndex = 0;
+            buckets = newBuckets(buckets.length * 2);
+            return;
+        }
+
+        SinglyLinkedList<Entry<K,V>>[] old = buckets;
+        buckets = newBuckets(buckets.length * 2);
 
         // Re-distribute all entries from old buckets to the new bucket array
-        for (SinglyLinkedList<Entry<K,V>> bucket : buckets) {
+        for (SinglyLinkedList<Entry<K,V>> bucket : old) {
             for (Entry<K,V> entry : bucket) {
-                // Re-calculate hash index based on new capacity
-                int newIndex = ((entry.key.hashCode() & 0xfffffff) % newCapacity);
-                newBuckets[newIndex].addFirst(new Entry<>(entry.key, entry.value));
+                // Re-calculate hash index based on new capacity; the entry itself is reused
+                buckets[indexFor(entry.key, buckets.length)].addFirst(entry);
             }
         }
+    }
 
-        buckets = newBuckets;
+    // Moves every entry of oldBuckets[index] into the current bucket array
+    private void migrateBucket(int index) {
+        SinglyLinkedList<Entry<K,V>> bucket = oldBuckets[index];
+        while (!bucket.isEmpty()) {
+            Entry<K,V> entry = bucket.removeFirst();
+            buckets[indexFor(entry.key, buckets.length)].addFirst(entry);
+        }
+    }
+
+    // Advances the incremental resize by up to MIGRATE_STEP old buckets
+    private void migrateStep(int steps) {
+        while (oldBuckets != null && steps-- > 0) {
+            migrateBucket(migrateIndex++);
+            if (migrateIndex == oldBuckets.length) {
+                oldBuckets = null;
+            }
+        }
+    }
+
+    // Before a put/remove touches key, its old bucket must be drained so the key lives
+    // in exactly one place; then the sweep moves forward a little
+    private void migrateFor(K key) {
+        if (oldBuckets == null) return;
+        int oldIndex = indexFor(key, oldBuckets.length);
+        if (oldIndex >= migrateIndex) migrateBucket(oldIndex);
+        migrateStep(MIGRATE_STEP);
+    }
+
+    // Smallest power-of-two capacity that holds expectedEntries without crossing loadFactor,
+    // capped at MAX_CAPACITY
+    private static int capacityFor(int expectedEntries, double loadFactor) {
+        if (expectedEntries < 0) {
+            throw new IllegalArgumentException("expectedEntries must be >= 0: " + expectedEntries);
+        }
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < MAX_CAPACITY && capacity * loadFactor < expectedEntries) {
+            capacity *= 2;
+        }
+        return capacity;
     }
 
     /*
@@ -47,17 +125,58 @@ public class HashTable<K,V> {
      */
 
     public HashTable() {
-        buckets = (SinglyLinkedList<Entry<K,V>>[]) new SinglyLinkedList[INITIAL_CAPACITY];
-        for (int i = 0; i < buckets.length; i++) {
-            buckets[i] = new SinglyLinkedList<>();
+        this(Mode.CHAINING);
+    }
+
+    public HashTable(Mode mode) {
+        this(mode, 0);
+    }
+
+    // Pre-sized table: inserting up to expectedEntries keys never triggers a resize
+    public HashTable(int expectedEntries) {
+        this(Mode.CHAINING, expectedEntries);
+    }
+
+    public HashTable(Mode mode, int expectedEntries) {
+        this.mode = mode;
+        if (mode == Mode.OPEN_ADDRESSING) {
+            int capacity = capacityFor(expectedEntries, OPEN_LOAD_FACTOR);
+            keys = new Object[capacity];
+            values = new Object[capacity];
+            hashes = new int[capacity];
+        } else {
+            buckets = newBuckets(capacityFor(expectedEntries, LOAD_FACTOR));
         }
         size = 0;
     }
 
+    public Mode mode() { return mode; }
+
     // Hash function to map a key to a valid array index
     private int hash(K key) {
+        return indexFor(key, buckets.length);
+    }
+
+    private static int indexFor(Object key, int capacity) {
         // Bitwise AND ensures the result is always non-negative
-        return (key.hashCode() & 0x7FFFFFFF) % buckets.length;
+        return (key.hashCode() & 0x7FFFFFFF) % capacity;
+    }
+
+    // Chained lookup; during an incremental resize the old array is consulted as well
+    private Entry<K,V> findEntry(K key) {
+        for (Entry<K,V> entry : buckets[hash(key)]) {
+            if (keysEqual(entry.key, key)) {
+                return entry;
+            }
+        }
+        if (oldBuckets != null) {
+            for (Entry<K,V> entry : oldBuckets[indexFor(key, oldBuckets.length)]) {
+                if (keysEqual(entry.key, key)) {
+                    return entry;
+                }
+            }
+        }
+        return null;
     }
 
     private boolean keysEqual(K key1, K key2) {
@@ -69,6 +188,8 @@ public class HashTable<K,V> {
     public boolean isEmpty() { return size == 0; }
 
     public V put(K key, V value) {
+        if (mode == Mode.OPEN_ADDRESSING) return openPut(key, value);
+        migrateFor(key);
         int index = hash(key);
         SinglyLinkedList<Entry<K,V>> bucket = buckets[index];
 
@@ -87,6 +208,8 @@ public class HashTable<K,V> {
 
         // Resize the table if the load factor threshold is exceeded
         if (size > buckets.length * LOAD_FACTOR) {
+            // Only reachable mid-migration on a pathological workload; finish it first
+            migrateStep(Integer.MAX_VALUE);
             resize();
         }
 
@@ -94,31 +217,23 @@ public class HashTable<K,V> {
     }
 
     public V get(K key) {
-        int index = hash(key);
-        SinglyLinkedList<Entry<K,V>> bucket = buckets[index];
-
-        // Search the linked list in the specific bucket
-        for (Entry<K,V> entry : bucket) {
-            if (keysEqual(entry.key, key)) {
-                return entry.value;
-            }
+        if (mode == Mode.OPEN_ADDRESSING) {
+            int slot = openFind(key);
+            return slot < 0 ? null : (V) values[slot];
         }
-        return null;
+        // Search the linked list in the specific bucket
+        Entry<K,V> entry = findEntry(key);
+        return entry == null ? null : entry.value;
     }
 
     public boolean containsKey(K key) {
-        int index = hash(key);
-        SinglyLinkedList<Entry<K,V>> bucket = buckets[index];
-
-        for (Entry<K,V> entry : bucket) {
-            if (keysEqual(entry.key, key)) {
-                return true;
-            }
-        }
-        return false;
+        if (mode == Mode.OPEN_ADDRESSING) return openFind(key) >= 0;
+        return findEntry(key) != null;
     }
 
     public V remove(K key) {
+        if (mode == Mode.OPEN_ADDRESSING) return openRemove(key);
+        migrateFor(key);
         int index = hash(key);
         SinglyLinkedList<Entry<K,V>> bucket = buckets[index];
 
@@ -137,11 +252,130 @@ public class HashTable<K,V> {
     }
 
     public void forEach(BiConsumer<K,V> consumer) {
+        if (mode == Mode.OPEN_ADDRESSING) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) consumer.accept((K) keys[i], (V) values[i]);
+            }
+            return;
+        }
         // Iterate through all buckets and all entries within them
         for (SinglyLinkedList<Entry<K,V>> bucket : buckets) {
             for (Entry<K,V> entry : bucket) {
                 consumer.accept(entry.key, entry.value);
             }
         }
+        if (oldBuckets != null) {
+            for (int i = migrateIndex; i < oldBuckets.length; i++) {
+                for (Entry<K,V> entry : oldBuckets[i]) {
+                    consumer.accept(entry.key, entry.value);
+                }
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Open addressing (linear probing, capacity is always a power of two)
+    // ---------------------------------------------------------------------
+
+    // Spreads the high bits down so that masking with (capacity - 1) uses all of them
+    private static int spread(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // Returns the slot holding key, or -1 if absent
+    private int openFind(K key) {
+        int h = spread(key);
+        int mask = keys.length - 1;
+        int i = h & mask;
+        Object k;
+        while ((k = keys[i]) != null) {
+            if (hashes[i] == h && (k == key || keysEqual((K) k, key))) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private V openPut(K key, V value) {
+        int h = spread(key);
+        int mask = keys.length - 1;
+        int i = h & mask;
+        Object k;
+        while ((k = keys[i]) != null) {
+            if (hashes[i] == h && (k == key || keysEqual((K) k, key))) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+
+        // Probing needs an empty slot to stop at; only a table that can no longer grow fills up
+        if (size + 1 == keys.length) {
+            throw new IllegalStateException("HashTable is full at " + size + " entries");
+        }
+        keys[i] = key;
+        values[i] = value;
+        hashes[i] = h;
+        size++;
+
+        if (size > keys.length * OPEN_LOAD_FACTOR && keys.length < MAX_CAPACITY) {
+            openResize(keys.length * 2);
+        }
+        return null;
+    }
+
+    private V openRemove(K key) {
+        int slot = openFind(key);
+        if (slot < 0) return null;
+
+        V old = (V) values[slot];
+        int mask = keys.length - 1;
+
+        // Backward-shift deletion: pull later members of the probe run into the hole
+        // so lookups never need tombstones
+        int hole = slot;
+        int i = (slot + 1) & mask;
+        while (keys[i] != null) {
+            int home = hashes[i] & mask;
+            // Move entry i into the hole unless its home lies cyclically in (hole, i]
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hashes[hole] = hashes[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[hole] = null;
+        values[hole] = null;
+        hashes[hole] = 0;
+        size--;
+        return old;
+    }
+
+    // Re-inserts every live slot into arrays of the new capacity using the cached hashes
+    private void openResize(int newCapacity) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+
+        keys = new Object[newCapacity];
+        values = new Object[newCapacity];
+        hashes = new int[newCapacity];
+        int mask = newCapacity - 1;
+
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == null) continue;
+            int i = oldHashes[j] & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+            hashes[i] = oldHashes[j];
+        }
     }
-}
\ No newline at end of file
+}
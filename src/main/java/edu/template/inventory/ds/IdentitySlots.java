@@ -0,0 +1,100 @@
+package edu.template.inventory.ds;
+
+// Object identity -> int, for the per-value slot numbers MultiHashTable keeps.
+// Open addressing as in HashTable (linear probing, power-of-two capacity, backward-shift
+// deletion), but keys are compared with == and hashed with System.identityHashCode, and the
+// ints sit in a primitive array: two array slots per entry, no Entry or boxed Integer
+final class IdentitySlots {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final double LOAD_FACTOR = 0.6;
+
+    private Object[] keys;
+    private int[] slots;
+    private int size;
+
+    IdentitySlots(int expected) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < MAX_CAPACITY && capacity * LOAD_FACTOR < expected) capacity *= 2;
+        keys = new Object[capacity];
+        slots = new int[capacity];
+    }
+
+    int size() { return size; }
+
+    private static int spread(Object key) {
+        int h = System.identityHashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    // Index holding key, or the empty index where its probe run ends
+    private int probe(Object key) {
+        int mask = keys.length - 1;
+        int i = spread(key) & mask;
+        Object k;
+        while ((k = keys[i]) != null && k != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    boolean contains(Object key) {
+        return keys[probe(key)] != null;
+    }
+
+    // key's int, or -1 if absent
+    int get(Object key) {
+        int i = probe(key);
+        return keys[i] == null ? -1 : slots[i];
+    }
+
+    // Sets key's int (slot must be >= 0), adding the key if absent
+    void put(Object key, int slot) {
+        int i = probe(key);
+        if (keys[i] == null) {
+            if (size + 1 == keys.length) {
+                throw new IllegalStateException("IdentitySlots is full at " + size + " entries");
+            }
+            keys[i] = key;
+            size++;
+            slots[i] = slot;
+            if (size > keys.length * LOAD_FACTOR && keys.length < MAX_CAPACITY) resize(keys.length * 2);
+            return;
+        }
+        slots[i] = slot;
+    }
+
+    boolean remove(Object key) {
+        int hole = probe(key);
+        if (keys[hole] == null) return false;
+        int mask = keys.length - 1;
+        // Backward-shift deletion: pull later members of the probe run into the hole
+        int i = (hole + 1) & mask;
+        while (keys[i] != null) {
+            int home = spread(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                slots[hole] = slots[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[hole] = null;
+        slots[hole] = 0;
+        size--;
+        return true;
+    }
+
+    private void resize(int capacity) {
+        Object[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new Object[capacity];
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == null) continue;
+            int i = spread(oldKeys[j]) & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            slots[i] = oldSlots[j];
+        }
+    }
+}
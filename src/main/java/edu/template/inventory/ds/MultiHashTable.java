@@ -0,0 +1,144 @@
+package edu.template.inventory.ds;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Multimap on top of HashTable: each key maps to a compact array-backed posting list,
+// so duplicate keys (e.g. many products sharing a name) are all kept instead of overwritten.
+// Values are told apart by identity, and each value may be stored under one key at a time:
+// its slot in that key's list is remembered, so removal is O(1) however many values share
+// the key. Lists are in insertion order until a removal moves the last value into the gap
+public class MultiHashTable<K,V> {
+    private static final int INITIAL_POSTINGS = 2;
+
+    // Growable array of values for one key
+    private static final class Postings {
+        Object[] items = new Object[INITIAL_POSTINGS];
+        int size;
+
+        // Returns the slot item went to
+        int add(Object item) {
+            if (size == items.length) {
+                Object[] grown = new Object[items.length * 2];
+                System.arraycopy(items, 0, grown, 0, size);
+                items = grown;
+            }
+            items[size] = item;
+            return size++;
+        }
+
+        // Empties slot at by moving the last item into it; returns the moved item, or null
+        // if at was the last slot
+        Object removeAt(int at) {
+            Object last = items[--size];
+            items[size] = null;
+            if (at == size) return null;
+            items[at] = last;
+            return last;
+        }
+    }
+
+    private final HashTable<K, Postings> table;
+    // Value -> its slot in the posting list of the key it is stored under
+    private final IdentitySlots slots;
+    // Total number of values across all keys
+    private int size;
+
+    public MultiHashTable() {
+        this(0);
+    }
+
+    public MultiHashTable(int expectedKeys) {
+        table = new HashTable<>(HashTable.Mode.OPEN_ADDRESSING, expectedKeys);
+        slots = new IdentitySlots(expectedKeys);
+    }
+
+    public int size() { return size; }
+
+    public int keyCount() { return table.size(); }
+
+    public boolean isEmpty() { return size == 0; }
+
+    // value must not already be stored (under any key)
+    public void put(K key, V value) {
+        if (slots.contains(value)) {
+            throw new IllegalArgumentException("Value is already stored: " + value);
+        }
+        Postings postings = table.get(key);
+        if (postings == null) {
+            postings = new Postings();
+            table.put(key, postings);
+        }
+        slots.put(value, postings.add(value));
+        size++;
+    }
+
+    // Removes value from under key in O(1); the key disappears once its last value is removed
+    public boolean remove(K key, V value) {
+        int at = slots.get(value);
+        if (at < 0) return false;
+        Postings postings = table.get(key);
+        if (postings == null || at >= postings.size || postings.items[at] != value) return false;
+        slots.remove(value);
+        Object moved = postings.removeAt(at);
+        if (moved != null) slots.put(moved, at);
+        if (postings.size == 0) table.remove(key);
+        size--;
+        return true;
+    }
+
+    public boolean containsKey(K key) {
+        return table.containsKey(key);
+    }
+
+    public int count(K key) {
+        Postings postings = table.get(key);
+        return postings == null ? 0 : postings.size;
+    }
+
+    // First value in key's list (the earliest inserted unless removals reordered it), or null
+    public V first(K key) {
+        Postings postings = table.get(key);
+        return postings == null ? null : (V) postings.items[0];
+    }
+
+    // Copy of all values under key, in list order; O(result)
+    public List<V> get(K key) {
+        Postings postings = table.get(key);
+        if (postings == null) return new ArrayList<>(0);
+        List<V> out = new ArrayList<>(postings.size);
+        for (int i = 0; i < postings.size; i++) {
+            out.add((V) postings.items[i]);
+        }
+        return out;
+    }
+
+    // One page of the values under key: O(limit), independent of how many values the key has
+    public List<V> get(K key, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must be >= 0");
+        }
+        Postings postings = table.get(key);
+        if (postings == null || offset >= postings.size) return new ArrayList<>(0);
+        int end = (int) Math.min((long) offset + limit, postings.size);
+        List<V> out = new ArrayList<>(end - offset);
+        for (int i = offset; i < end; i++) {
+            out.add((V) postings.items[i]);
+        }
+        return out;
+    }
+
+    public void forEach(K key, Consumer<? super V> consumer) {
+        Postings postings = table.get(key);
+        if (postings == null) return;
+        for (int i = 0; i < postings.size; i++) {
+            consumer.accept((V) postings.items[i]);
+        }
+    }
+
+    public void forEachKey(BiConsumer<K, Integer> consumer) {
+        table.forEach((key, postings) -> consumer.accept(key, postings.size));
+    }
+}
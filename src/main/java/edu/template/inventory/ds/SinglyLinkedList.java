@@ -1,8 +1,12 @@
 package edu.template.inventory.ds;
 
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 public class SinglyLinkedList<T> implements Iterable<T> {
     public static final class Node<T> {
@@ -17,11 +21,14 @@ public class SinglyLinkedList<T> implements Iterable<T> {
     public SinglyLinkedList() {
         // Initialize with a sentinel (dummy) node to simplify head operations
         sentinel = new Node<>(null, null);
+        tail = sentinel;
         size = 0;
     }
 
     private int size = 0;
     private Node<T> sentinel;
+    // Last node of the list (the sentinel itself when empty), so addLast is O(1)
+    private Node<T> tail;
 
     /*
     private void todo(String what) { throw new UnsupportedOperationException("students/you need to code this part: " + what); }
@@ -34,20 +41,35 @@ public class SinglyLinkedList<T> implements Iterable<T> {
     public void addFirst(T item) {
         // Insert directly after the sentinel
         sentinel.next = new Node<>(item, sentinel.next);
+        if (tail == sentinel) tail = sentinel.next;
         size = size + 1;
     }
 
     public void addLast(T item) {
         size = size + 1;
 
-        Node<T> p = sentinel;
+        // Link directly after the tracked tail
+        tail.next = new Node<>(item, null);
+        tail = tail.next;
+    }
 
-        // Traverse to the end of the list
-        while (p.next != null) {
+    // Appends every item in one pass: O(k) for k items regardless of the current size
+    public void addAll(Iterable<? extends T> items) {
+        Node<T> p = tail;
+        int added = 0;
+        for (T item : items) {
+            p.next = new Node<>(item, null);
             p = p.next;
+            added++;
         }
+        tail = p;
+        size = size + added;
+    }
 
-        p.next =new Node<>(item, null);
+    public void clear() {
+        sentinel.next = null;
+        tail = sentinel;
+        size = 0;
     }
 
     public T removeFirst() {
@@ -60,6 +82,7 @@ public class SinglyLinkedList<T> implements Iterable<T> {
         // Retrieve item and bypass the first node
         T data = sentinel.next.item;
         sentinel.next = sentinel.next.next;
+        if (sentinel.next == null) tail = sentinel;
 
         return data;
     }
@@ -109,6 +132,7 @@ public class SinglyLinkedList<T> implements Iterable<T> {
         T data = p.next.item;
         // Remove the node by linking p to the node after the next one
         p.next = p.next.next;
+        if (p.next == null) tail = p;
 
         size = size - 1;
 
@@ -141,76 +165,127 @@ public class SinglyLinkedList<T> implements Iterable<T> {
         };
     }
 
-    // In-place merge sort for the linked list
+    // In-place merge sort for the linked list, by a Comparable key
     public <U extends Comparable<U>> void mergeSort(java.util.function.Function<T,U> keyExtractor) {
         if (size <= 1) {
             return;
         }
-
-        // Sort the list starting from the first actual node and update sentinel.next
-        sentinel.next = mergeSortRecursive(sentinel.next, size, keyExtractor);
+        // Extract every key once instead of twice per comparison
+        Object[] keys = new Object[size];
+        int i = 0;
+        for (Node<T> p = sentinel.next; p != null; p = p.next) {
+            keys[i++] = keyExtractor.apply(p.item);
+        }
+        sortNodes((x, y) -> ((U) keys[x]).compareTo((U) keys[y]));
     }
 
-    private <U extends Comparable<U>> Node<T> mergeSortRecursive(
-            Node<T> head,
-            int length,
-            java.util.function.Function<T,U> keyExtractor) {
-
-        // Base case: list is empty or has a single element (already sorted)
-        if (head == null || length <= 1) {
-            return head;
+    public void sort(Comparator<? super T> cmp) {
+        if (size <= 1) {
+            return;
         }
-
-        // Split the list into two halves
-        int leftSize = length / 2;
-        int rightSize = length - leftSize;
-
-        Node<T> leftTail = head;
-        for (int i = 0; i < leftSize - 1; i++) {
-            leftTail = leftTail.next;
+        Object[] items = new Object[size];
+        int i = 0;
+        for (Node<T> p = sentinel.next; p != null; p = p.next) {
+            items[i++] = p.item;
         }
+        sortNodes((x, y) -> cmp.compare((T) items[x], (T) items[y]));
+    }
 
-        // Disconnect left half from right half
-        Node<T> rightHead = leftTail.next;
-        leftTail.next = null;
+    public void sortByInt(ToIntFunction<? super T> keyExtractor) {
+        if (size <= 1) {
+            return;
+        }
+        long[] keys = new long[size];
+        int i = 0;
+        for (Node<T> p = sentinel.next; p != null; p = p.next) {
+            keys[i++] = keyExtractor.applyAsInt(p.item);
+        }
+        sortNodes((x, y) -> Long.compare(keys[x], keys[y]));
+    }
 
-        // Recursively sort both halves
-        Node<T> left = mergeSortRecursive(head, leftSize, keyExtractor);
-        Node<T> right = mergeSortRecursive(rightHead, rightSize, keyExtractor);
+    public void sortByLong(ToLongFunction<? super T> keyExtractor) {
+        if (size <= 1) {
+            return;
+        }
+        long[] keys = new long[size];
+        int i = 0;
+        for (Node<T> p = sentinel.next; p != null; p = p.next) {
+            keys[i++] = keyExtractor.applyAsLong(p.item);
+        }
+        sortNodes((x, y) -> Long.compare(keys[x], keys[y]));
+    }
 
-        return merge(left, right, keyExtractor);
+    public void sortByDouble(ToDoubleFunction<? super T> keyExtractor) {
+        if (size <= 1) {
+            return;
+        }
+        long[] keys = new long[size];
+        int i = 0;
+        for (Node<T> p = sentinel.next; p != null; p = p.next) {
+            // Map the double to a long whose signed order matches Double.compare
+            long bits = Double.doubleToLongBits(keyExtractor.applyAsDouble(p.item));
+            keys[i++] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+        }
+        sortNodes((x, y) -> Long.compare(keys[x], keys[y]));
     }
 
-    private <U extends Comparable<U>> Node<T> merge(Node<T> left, Node<T> right, java.util.function.Function<T,U> keyExtractor) {
+    // Compares the elements at two original positions (0 = first node)
+    private interface PositionOrder {
+        int compare(int x, int y);
+    }
 
-        // Temporary dummy node to build the merged list
-        Node<T> s = new Node<>(null, null);
-        Node<T> current = s;
+    // Stable natural merge sort over node positions, then one pass to relink the nodes.
+    // Already-sorted stretches are detected as runs and never compared again, so sorted
+    // input costs n - 1 comparisons; runs are merged bottom-up without recursion
+    private void sortNodes(PositionOrder order) {
+        int n = size;
+        Node<T>[] nodes = (Node<T>[]) new Node[n];
+        int i = 0;
+        for (Node<T> p = sentinel.next; p != null; p = p.next) {
+            nodes[i++] = p;
+        }
 
-        // Merge two sorted lists
-        while (left != null && right != null) {
-            U leftKey = keyExtractor.apply(left.item);
-            U rightKey = keyExtractor.apply(right.item);
+        int[] src = new int[n];
+        for (i = 0; i < n; i++) src[i] = i;
 
-            if (leftKey.compareTo(rightKey) <= 0) {
-                current.next = left;
-                left = left.next;
-            } else {
-                current.next = right;
-                right = right.next;
+        // runStart[r] is where run r begins; runStart[runs] == n
+        int[] runStart = new int[n + 1];
+        int runs = 0;
+        runStart[runs++] = 0;
+        for (i = 1; i < n; i++) {
+            if (order.compare(i - 1, i) > 0) runStart[runs++] = i;
+        }
+        runStart[runs] = n;
+
+        int[] dst = new int[n];
+        while (runs > 1) {
+            int merged = 0;
+            for (int r = 0; r < runs; r += 2) {
+                int low = runStart[r];
+                int mid = runStart[Math.min(r + 1, runs)];
+                int high = runStart[Math.min(r + 2, runs)];
+                int a = low, b = mid, k = low;
+                while (a < mid && b < high) {
+                    dst[k++] = order.compare(src[a], src[b]) <= 0 ? src[a++] : src[b++];
+                }
+                while (a < mid) dst[k++] = src[a++];
+                while (b < high) dst[k++] = src[b++];
+                runStart[merged++] = low;
             }
-            current = current.next;
+            runStart[merged] = n;
+            runs = merged;
+            int[] temp = src;
+            src = dst;
+            dst = temp;
         }
 
-        // Attach remaining nodes
-        if (left != null) {
-            current.next = left;
-        }
-        if (right != null) {
-            current.next = right;
+        // Relink the nodes in sorted order
+        Node<T> p = sentinel;
+        for (i = 0; i < n; i++) {
+            p.next = nodes[src[i]];
+            p = p.next;
         }
-
-        // Return the start of the merged list (skipping the dummy node)
-        return s.next;
+        p.next = null;
+        tail = p;
     }
-}
\ No newline at end of file
+}
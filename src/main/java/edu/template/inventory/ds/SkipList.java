@@ -0,0 +1,288 @@
+package edu.template.inventory.ds;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Indexable skip list of (key, value) pairs kept in order of key, ties broken by value.
+// Each forward link records its span (how many level-0 steps it skips), so the element
+// at any rank is found in O(log n) and a page of k elements costs O(log n + k).
+// Keys are stored with the value: callers remove with the key they inserted, so a value
+// whose sort field changes must be removed before and re-inserted after the change.
+public class SkipList<K,V> implements Iterable<V> {
+    private static final int MAX_LEVEL = 32;
+
+    private static final class Node<K,V> {
+        final K key;
+        final V value;
+        final Node<K,V>[] next;
+        final int[] span;
+        // Level-0 back link for descending walks
+        Node<K,V> prev;
+
+        Node(K key, V value, int level) {
+            this.key = key;
+            this.value = value;
+            this.next = (Node<K,V>[]) new Node[level];
+            this.span = new int[level];
+        }
+    }
+
+    private final Comparator<? super K> keyOrder;
+    private final Comparator<? super V> tieOrder;
+    private final Node<K,V> head = new Node<>(null, null, MAX_LEVEL);
+    private Node<K,V> tail;
+    private int level = 1;
+    private int size;
+    // xorshift state; java.util.Random's synchronisation is not needed here
+    private long seed = 0x9E3779B97F4A7C15L;
+
+    // Scratch arrays reused by insert/remove so updates do not allocate
+    private final Node<K,V>[] update = (Node<K,V>[]) new Node[MAX_LEVEL];
+    private final int[] rankAt = new int[MAX_LEVEL];
+
+    public SkipList(Comparator<? super K> keyOrder, Comparator<? super V> tieOrder) {
+        this.keyOrder = keyOrder;
+        this.tieOrder = tieOrder;
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public void clear() {
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            head.next[i] = null;
+            head.span[i] = 0;
+        }
+        tail = null;
+        level = 1;
+        size = 0;
+    }
+
+    private int compare(K k1, V v1, K k2, V v2) {
+        int c = keyOrder.compare(k1, k2);
+        return c != 0 ? c : tieOrder.compare(v1, v2);
+    }
+
+    // Level l with probability 4^-(l-1): about 1.33 links per node on average
+    private int randomLevel() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        int lvl = 1 + Long.numberOfTrailingZeros(seed | (1L << 62)) / 2;
+        return Math.min(lvl, MAX_LEVEL);
+    }
+
+    public void insert(K key, V value) {
+        // Find the predecessor at every level and its rank
+        Node<K,V> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rankAt[i] = (i == level - 1) ? 0 : rankAt[i + 1];
+            while (x.next[i] != null && compare(x.next[i].key, x.next[i].value, key, value) < 0) {
+                rankAt[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        link(key, value, randomLevel());
+    }
+
+    // Appends when (key, value) sorts at or after the current last element. Only the right
+    // edge is walked and no keys are compared, so indexing a pre-sorted batch is cheap
+    public void addLast(K key, V value) {
+        if (tail != null && compare(tail.key, tail.value, key, value) > 0) {
+            throw new IllegalArgumentException("addLast out of order: " + key);
+        }
+        // The predecessor at level i is the last node tall enough to reach level i;
+        // walk down the right edge of the list
+        Node<K,V> x = head;
+        int rank = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+            rankAt[i] = rank;
+        }
+        link(key, value, randomLevel());
+    }
+
+    // Splices a node after update[0..lvl), using rankAt to fix up spans
+    private void link(K key, V value, int lvl) {
+        if (lvl > level) {
+            for (int i = level; i < lvl; i++) {
+                rankAt[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = lvl;
+        }
+
+        Node<K,V> node = new Node<>(key, value, lvl);
+        for (int i = 0; i < lvl; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            // Distance from update[i] to the new node, and from the new node onwards
+            node.span[i] = update[i].span[i] - (rankAt[0] - rankAt[i]);
+            update[i].span[i] = (rankAt[0] - rankAt[i]) + 1;
+        }
+        // Levels above the new node now skip one more element
+        for (int i = lvl; i < level; i++) {
+            update[i].span[i]++;
+        }
+
+        node.prev = (update[0] == head) ? null : update[0];
+        if (node.next[0] != null) {
+            node.next[0].prev = node;
+        } else {
+            tail = node;
+        }
+        size++;
+    }
+
+    public boolean remove(K key, V value) {
+        Node<K,V> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && compare(x.next[i].key, x.next[i].value, key, value) < 0) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        Node<K,V> target = x.next[0];
+        if (target == null || compare(target.key, target.value, key, value) != 0) return false;
+
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == target) {
+                update[i].span[i] += target.span[i] - 1;
+                update[i].next[i] = target.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+
+        if (target.next[0] != null) {
+            target.next[0].prev = target.prev;
+        } else {
+            tail = target.prev;
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+        return true;
+    }
+
+    // Node at 0-based rank, or null if out of range
+    private Node<K,V> nodeAt(int rank) {
+        if (rank < 0 || rank >= size) return null;
+        int target = rank + 1;
+        int traversed = 0;
+        Node<K,V> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= target) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == target) return x;
+        }
+        return null;
+    }
+
+    public V get(int rank) {
+        Node<K,V> node = nodeAt(rank);
+        if (node == null) {
+            throw new IndexOutOfBoundsException("Index: " + rank + ", Size: " + size);
+        }
+        return node.value;
+    }
+
+    // Up to limit values starting at 0-based rank offset
+    public List<V> page(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must be >= 0");
+        }
+        List<V> out = new ArrayList<>(Math.min(limit, Math.max(0, size - offset)));
+        for (Node<K,V> x = nodeAt(offset); x != null && out.size() < limit; x = x.next[0]) {
+            out.add(x.value);
+        }
+        return out;
+    }
+
+    // Up to limit values strictly after (key, value); the pair itself need not be present,
+    // so a cursor stays valid after its element is removed
+    public List<V> pageAfter(K key, V value, int limit) {
+        List<V> out = new ArrayList<>();
+        Node<K,V> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && compare(x.next[i].key, x.next[i].value, key, value) <= 0) {
+                x = x.next[i];
+            }
+        }
+        for (x = x.next[0]; x != null && out.size() < limit; x = x.next[0]) {
+            out.add(x.value);
+        }
+        return out;
+    }
+
+    // Values whose key lies in [from, to], at most limit of them, walking up or down the
+    // range from the matching end; O(log n + k)
+    public List<V> range(K from, K to, int limit, boolean ascending) {
+        List<V> out = new ArrayList<>();
+        if (limit <= 0 || keyOrder.compare(from, to) > 0) return out;
+
+        Node<K,V> x = head;
+        if (ascending) {
+            // Last node with key < from; its successor starts the range
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && keyOrder.compare(x.next[i].key, from) < 0) {
+                    x = x.next[i];
+                }
+            }
+            for (x = x.next[0]; x != null && out.size() < limit && keyOrder.compare(x.key, to) <= 0; x = x.next[0]) {
+                out.add(x.value);
+            }
+        } else {
+            // Last node with key <= to ends the range
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && keyOrder.compare(x.next[i].key, to) <= 0) {
+                    x = x.next[i];
+                }
+            }
+            for (x = (x == head) ? null : x; x != null && out.size() < limit && keyOrder.compare(x.key, from) >= 0; x = x.prev) {
+                out.add(x.value);
+            }
+        }
+        return out;
+    }
+
+    public List<V> toList() {
+        List<V> out = new ArrayList<>(size);
+        for (Node<K,V> x = head.next[0]; x != null; x = x.next[0]) {
+            out.add(x.value);
+        }
+        return out;
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            private Node<K,V> current = head.next[0];
+
+            public boolean hasNext() { return current != null; }
+
+            public V next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("No more elements");
+                }
+                V value = current.value;
+                current = current.next[0];
+                return value;
+            }
+        };
+    }
+}
@@ -1,7 +1,13 @@
 package edu.template.inventory.ds;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 public final class Sorting {
     private Sorting() {}
@@ -28,97 +34,579 @@ public final class Sorting {
         }
     }
 
+    // Length of the runs mergeSort builds with insertion sort before merging
+    private static final int MERGE_RUN = 32;
+
     public static <T> void mergeSort(T[] a, Comparator<? super T> cmp) {
-        if (a == null || a.length <= 1) return;
-        mergeSortRecursive(a, 0, a.length - 1, cmp);
+        mergeSort(a, cmp, null);
     }
 
-    private static <T> void mergeSortRecursive(T[] a, int left, int right, Comparator<? super T> cmp) {
-        if (left >= right) return;
+    // Stable bottom-up merge sort using one auxiliary array, so a sort allocates at most
+    // n slots in total (none when the caller passes a buffer of at least a.length).
+    // Insertion-sorted runs of MERGE_RUN are merged in passes that alternate between a and
+    // the buffer; a pair of runs already in order is copied instead of merged, and each
+    // merge first skips the prefix/suffix that is already in place (TimSort-style gallop)
+    public static <T> void mergeSort(T[] a, Comparator<? super T> cmp, T[] buffer) {
+        if (a == null || a.length <= 1) return;
+        int n = a.length;
+        if (buffer != null && buffer.length < n) {
+            throw new IllegalArgumentException("buffer length " + buffer.length + " < " + n);
+        }
 
-        int mid = left + (right - left) / 2;
-        // Recursively sort the left and right halves
-        mergeSortRecursive(a, left, mid, cmp);          // [left, mid]
-        mergeSortRecursive(a, mid + 1, right, cmp); // [mid+1, right]
+        for (int low = 0; low < n; low += MERGE_RUN) {
+            insertionSort(a, low, Math.min(low + MERGE_RUN, n) - 1, cmp);
+        }
+        if (n <= MERGE_RUN) return;
+
+        T[] buf = (buffer != null) ? buffer : Arrays.copyOf(a, n);
+        mergePasses(a, buf, 0, n, cmp);
+    }
 
-        // Merge the two sorted halves
-        merge(a, left, mid, right, cmp);
+    // Sorts a[from, to) using buf[from, to) as scratch
+    private static <T> void mergeSortRange(T[] a, T[] buf, int from, int to, Comparator<? super T> cmp) {
+        for (int low = from; low < to; low += MERGE_RUN) {
+            insertionSort(a, low, Math.min(low + MERGE_RUN, to) - 1, cmp);
+        }
+        mergePasses(a, buf, from, to, cmp);
     }
 
-    private static <T> void merge(T[] a, int left, int mid, int right, Comparator<? super T> cmp) {
-        int length = right - left + 1;
+    // Merges the insertion-sorted MERGE_RUN runs of a[from, to) bottom-up
+    private static <T> void mergePasses(T[] a, T[] buf, int from, int to, Comparator<? super T> cmp) {
+        T[] src = a, dst = buf;
+        for (int width = MERGE_RUN; width < to - from; width *= 2) {
+            for (int low = from; low < to; low += 2 * width) {
+                int mid = Math.min(low + width, to);
+                int high = Math.min(low + 2 * width, to);
+                mergeRuns(src, dst, low, mid, high, cmp);
+            }
+            T[] temp = src;
+            src = dst;
+            dst = temp;
+        }
 
-        // Create a temporary array to hold merged results
-        // Using Arrays.copyOf to safely create a generic array of the same type as 'a'
-        T[] tmp = Arrays.copyOf(a, length);
+        // After an odd number of passes the result sits in the buffer
+        if (src != a) System.arraycopy(src, from, a, from, to - from);
+    }
 
-        int i = left, j = mid + 1, k = 0;
+    // Merges sorted src[low, mid) and src[mid, high) into dst[low, high); ties take the left
+    private static <T> void mergeRuns(T[] src, T[] dst, int low, int mid, int high, Comparator<? super T> cmp) {
+        // Right run empty, or the two runs are already in order
+        if (mid >= high || cmp.compare(src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, low, dst, low, high - low);
+            return;
+        }
 
-        // Compare elements from both halves and copy the smaller one to tmp
-        while (i <= mid && j <= right) {
-            int compareResult = cmp.compare(a[i], a[j]);
+        // Left elements <= the first right element, and right elements >= the last left
+        // element, are already in their final positions
+        int i = upperBound(src, low, mid, src[mid], cmp);
+        int end = lowerBound(src, mid, high, src[mid - 1], cmp);
+        System.arraycopy(src, low, dst, low, i - low);
+        System.arraycopy(src, end, dst, end, high - end);
 
-            if (compareResult <= 0) {
-                tmp[k] = a[i];
-                i = i + 1;
+        int j = mid, k = i;
+        // Compare elements from both halves and copy the smaller one to dst
+        while (i < mid && j < end) {
+            if (cmp.compare(src[i], src[j]) <= 0) {
+                dst[k++] = src[i++];
             } else {
-                tmp[k] = a[j];
-                j = j + 1;
+                dst[k++] = src[j++];
             }
-
-            k = k + 1;
         }
+        // Copy remaining elements from whichever half is left
+        while (i < mid) dst[k++] = src[i++];
+        while (j < end) dst[k++] = src[j++];
+    }
 
-        // Copy remaining elements from the left half, if any
-        while (i <= mid) tmp[k++] = a[i++];
-        // Copy remaining elements from the right half, if any
-        while (j <= right) tmp[k++] = a[j++];
+    // First index in a[low, high) whose element is > key (binary search)
+    private static <T> int upperBound(T[] a, int low, int high, T key, Comparator<? super T> cmp) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cmp.compare(a[mid], key) <= 0) low = mid + 1; else high = mid;
+        }
+        return low;
+    }
 
-        // Copy the sorted elements from tmp back to the original array
-        for (k = 0; k < length; k++) {
-            a[left + k] = tmp[k];
+    // First index in a[low, high) whose element is >= key (binary search)
+    private static <T> int lowerBound(T[] a, int low, int high, T key, Comparator<? super T> cmp) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cmp.compare(a[mid], key) < 0) low = mid + 1; else high = mid;
         }
+        return low;
     }
 
+    // Ranges at or below this size are finished with insertion sort
+    private static final int INSERTION_CUTOFF = 16;
+    // Ranges above this size use Tukey's ninther instead of median-of-three
+    private static final int NINTHER_THRESHOLD = 40;
+
+    // Introsort: quicksort with median-of-three/ninther pivots and three-way partitioning,
+    // insertion sort for small ranges, and heapsort once recursion gets too deep.
+    // Sorted, reversed and all-equal inputs all stay O(n log n) with O(log n) stack
     public static <T> void quickSort(T[] a, Comparator<? super T> cmp) {
         if (a == null || a.length <= 1) {
             return;
         }
-        quickSortRecursive(a, 0, a.length - 1, cmp);
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(a.length));
+        introSort(a, 0, a.length - 1, depthLimit, cmp);
+    }
+
+    private static <T> void introSort(T[] a, int low, int high, int depthLimit, Comparator<? super T> cmp) {
+        while (high - low + 1 > INSERTION_CUTOFF) {
+            if (depthLimit-- == 0) {
+                heapSort(a, low, high, cmp);
+                return;
+            }
+
+            T pivot = a[choosePivot(a, low, high, cmp)];
+
+            // Dutch national flag partition: [low, lt) < pivot, [lt, gt] == pivot, (gt, high] > pivot
+            int lt = low, i = low, gt = high;
+            while (i <= gt) {
+                int c = cmp.compare(a[i], pivot);
+                if (c < 0) {
+                    swap(a, lt++, i++);
+                } else if (c > 0) {
+                    swap(a, i, gt--);
+                } else {
+                    i++;
+                }
+            }
+
+            // Recurse into the smaller side and loop on the larger one to bound the stack
+            if (lt - low < high - gt) {
+                introSort(a, low, lt - 1, depthLimit, cmp);
+                low = gt + 1;
+            } else {
+                introSort(a, gt + 1, high, depthLimit, cmp);
+                high = lt - 1;
+            }
+        }
+        insertionSort(a, low, high, cmp);
+    }
+
+    // Index of the median of a[low], a[mid], a[high], or of three such medians spread
+    // across the range (ninther) for larger ranges
+    private static <T> int choosePivot(T[] a, int low, int high, Comparator<? super T> cmp) {
+        int mid = low + (high - low) / 2;
+        if (high - low + 1 > NINTHER_THRESHOLD) {
+            int step = (high - low + 1) / 8;
+            int m1 = medianOfThree(a, low, low + step, low + 2 * step, cmp);
+            int m2 = medianOfThree(a, mid - step, mid, mid + step, cmp);
+            int m3 = medianOfThree(a, high - 2 * step, high - step, high, cmp);
+            return medianOfThree(a, m1, m2, m3, cmp);
+        }
+        return medianOfThree(a, low, mid, high, cmp);
+    }
+
+    private static <T> int medianOfThree(T[] a, int i, int j, int k, Comparator<? super T> cmp) {
+        if (cmp.compare(a[i], a[j]) < 0) {
+            if (cmp.compare(a[j], a[k]) < 0) return j;
+            return cmp.compare(a[i], a[k]) < 0 ? k : i;
+        }
+        if (cmp.compare(a[i], a[k]) < 0) return i;
+        return cmp.compare(a[j], a[k]) < 0 ? k : j;
+    }
+
+    // Stable insertion sort of a[low..high]
+    private static <T> void insertionSort(T[] a, int low, int high, Comparator<? super T> cmp) {
+        for (int i = low + 1; i <= high; i++) {
+            T item = a[i];
+            int j = i - 1;
+            while (j >= low && cmp.compare(a[j], item) > 0) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = item;
+        }
+    }
+
+    // In-place heapsort of a[low..high]
+    private static <T> void heapSort(T[] a, int low, int high, Comparator<? super T> cmp) {
+        int n = high - low + 1;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(a, low, i, n, cmp);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(a, low, low + end);
+            siftDown(a, low, 0, end, cmp);
+        }
+    }
+
+    // The k smallest elements of a in ascending order, without modifying a.
+    // Keeps a bounded max-heap of the best k seen so far: O(n log k) time, O(k) space
+    public static <T> T[] topK(T[] a, int k, Comparator<? super T> cmp) {
+        if (k < 0) throw new IllegalArgumentException("k must be >= 0: " + k);
+        k = Math.min(k, a.length);
+        T[] heap = Arrays.copyOf(a, k);
+        if (k == 0) return heap;
+
+        // Heapify the first k elements as a max-heap
+        for (int i = k / 2 - 1; i >= 0; i--) {
+            siftDown(heap, 0, i, k, cmp);
+        }
+        // Any later element smaller than the current k-th best replaces the root
+        for (int i = k; i < a.length; i++) {
+            if (cmp.compare(a[i], heap[0]) < 0) {
+                heap[0] = a[i];
+                siftDown(heap, 0, 0, k, cmp);
+            }
+        }
+        // Pop the max to the back repeatedly: leaves the heap sorted ascending
+        for (int end = k - 1; end > 0; end--) {
+            T temp = heap[0];
+            heap[0] = heap[end];
+            heap[end] = temp;
+            siftDown(heap, 0, 0, end, cmp);
+        }
+        return heap;
+    }
+
+    // Max-heap sift-down of heap slot i, for a heap of n slots stored from a[base]
+    private static <T> void siftDown(T[] a, int base, int i, int n, Comparator<? super T> cmp) {
+        T item = a[base + i];
+        int child;
+        while ((child = 2 * i + 1) < n) {
+            if (child + 1 < n && cmp.compare(a[base + child + 1], a[base + child]) > 0) child++;
+            if (cmp.compare(a[base + child], item) <= 0) break;
+            a[base + i] = a[base + child];
+            i = child;
+        }
+        a[base + i] = item;
+    }
+
+    // Rearranges a so that a[k] holds the element that would be there if a were sorted,
+    // with nothing greater before it and nothing smaller after it (introselect).
+    // Quickselect with median-of-three pivots; if partitioning stops shrinking the range
+    // fast enough, falls back to heap selection so the worst case stays O(n log n)
+    public static <T> void select(T[] a, int k, Comparator<? super T> cmp) {
+        if (k < 0 || k >= a.length) {
+            throw new IndexOutOfBoundsException("Index: " + k + ", Size: " + a.length);
+        }
+        int low = 0, high = a.length - 1;
+        int budget = 2 * (32 - Integer.numberOfLeadingZeros(a.length));
+
+        while (high > low) {
+            if (budget-- == 0) {
+                heapSelect(a, low, high, k, cmp);
+                return;
+            }
+            int mid = low + (high - low) / 2;
+            // Order a[low], a[mid], a[high] and use the median as the pivot
+            if (cmp.compare(a[mid], a[low]) < 0) swap(a, mid, low);
+            if (cmp.compare(a[high], a[low]) < 0) swap(a, high, low);
+            if (cmp.compare(a[high], a[mid]) < 0) swap(a, high, mid);
+            T pivot = a[mid];
+
+            // Hoare partition around the pivot value
+            int i = low, j = high;
+            while (i <= j) {
+                while (cmp.compare(a[i], pivot) < 0) i++;
+                while (cmp.compare(a[j], pivot) > 0) j--;
+                if (i <= j) {
+                    swap(a, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            // Now a[low..j] <= pivot <= a[i..high], and a(j..i) equals the pivot
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    // Places the (k-low)-th smallest of a[low..high] at a[k] in place: keeps the k-low+1
+    // smallest in a max-heap at the front of the range, swapping smaller elements in,
+    // then moves the heap's root (the k-th smallest) to index k
+    private static <T> void heapSelect(T[] a, int low, int high, int k, Comparator<? super T> cmp) {
+        int m = k - low + 1;
+        for (int i = m / 2 - 1; i >= 0; i--) {
+            siftDown(a, low, i, m, cmp);
+        }
+        for (int i = low + m; i <= high; i++) {
+            if (cmp.compare(a[i], a[low]) < 0) {
+                swap(a, i, low);
+                siftDown(a, low, 0, m, cmp);
+            }
+        }
+        swap(a, low, k);
+    }
+
+    private static <T> void swap(T[] a, int i, int j) {
+        T temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+    }
+
+    // ---------------------------------------------------------------------
+    // Key-extractor sorts (no comparisons): counting sort and LSD radix sort
+    // ---------------------------------------------------------------------
+
+    // Key ranges up to this many distinct values are counting-sorted in a single pass
+    private static final int COUNTING_MAX_RANGE = 1 << 16;
+    private static final int RADIX_BITS = 8;
+
+    // Stable sort by an int key. Each key is extracted once into a primitive array and the
+    // elements are permuted by the sorted keys; narrow key ranges use countingSort
+    public static <T> void radixSortByInt(T[] a, ToIntFunction<? super T> key) {
+        if (a == null || a.length <= 1) return;
+        long[] keys = new long[a.length];
+        for (int i = 0; i < a.length; i++) keys[i] = key.applyAsInt(a[i]);
+        sortByKeys(a, keys);
+    }
+
+    public static <T> void radixSortByLong(T[] a, ToLongFunction<? super T> key) {
+        if (a == null || a.length <= 1) return;
+        long[] keys = new long[a.length];
+        for (int i = 0; i < a.length; i++) keys[i] = key.applyAsLong(a[i]);
+        sortByKeys(a, keys);
+    }
+
+    // Stable counting sort by an int key: O(n + range) time, for keys spanning a narrow
+    // range such as stock levels
+    public static <T> void countingSort(T[] a, ToIntFunction<? super T> key) {
+        if (a == null || a.length <= 1) return;
+        int[] keys = new int[a.length];
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int i = 0; i < a.length; i++) {
+            keys[i] = key.applyAsInt(a[i]);
+            min = Math.min(min, keys[i]);
+            max = Math.max(max, keys[i]);
+        }
+        if ((long) max - min >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("key range too wide for counting sort: " + min + ".." + max);
+        }
+        countingSortRange(a, keys, min, max - min + 1);
+    }
+
+    private static <T> void countingSortRange(T[] a, int[] keys, int min, int range) {
+        int[] start = new int[range + 1];
+        for (int k : keys) start[k - min + 1]++;
+        for (int i = 1; i <= range; i++) start[i] += start[i - 1];
+
+        T[] copy = Arrays.copyOf(a, a.length);
+        for (int i = 0; i < copy.length; i++) {
+            a[start[keys[i] - min]++] = copy[i];
+        }
+    }
+
+    // Sorts a by keys (parallel to a). Keys are rebased to min so only the bytes that
+    // actually vary get a radix pass
+    private static <T> void sortByKeys(T[] a, long[] keys) {
+        int n = a.length;
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (long k : keys) {
+            min = Math.min(min, k);
+            max = Math.max(max, k);
+        }
+        // Unsigned span; 0 means every key is equal
+        long span = max - min;
+        if (span == 0) return;
+
+        if (Long.compareUnsigned(span, COUNTING_MAX_RANGE) < 0) {
+            int[] small = new int[n];
+            for (int i = 0; i < n; i++) small[i] = (int) (keys[i] - min);
+            countingSortRange(a, small, 0, (int) span + 1);
+            return;
+        }
+
+        // LSD radix sort of (rebased key, original index) pairs, one byte per pass
+        long[] k1 = new long[n], k2 = new long[n];
+        int[] i1 = new int[n], i2 = new int[n];
+        for (int i = 0; i < n; i++) {
+            k1[i] = keys[i] - min;
+            i1[i] = i;
+        }
+        int passes = (64 - Long.numberOfLeadingZeros(span) + RADIX_BITS - 1) / RADIX_BITS;
+        int[] count = new int[1 << RADIX_BITS];
+        for (int pass = 0, shift = 0; pass < passes; pass++, shift += RADIX_BITS) {
+            Arrays.fill(count, 0);
+            for (int i = 0; i < n; i++) count[(int) (k1[i] >>> shift) & 0xFF]++;
+            // A byte that is the same for every key does not change the order
+            if (count[(int) (k1[0] >>> shift) & 0xFF] == n) continue;
+            for (int b = 0, sum = 0; b < count.length; b++) {
+                int c = count[b];
+                count[b] = sum;
+                sum += c;
+            }
+            for (int i = 0; i < n; i++) {
+                int dst = count[(int) (k1[i] >>> shift) & 0xFF]++;
+                k2[dst] = k1[i];
+                i2[dst] = i1[i];
+            }
+            long[] kt = k1; k1 = k2; k2 = kt;
+            int[] it = i1; i1 = i2; i2 = it;
+        }
+
+        T[] copy = Arrays.copyOf(a, n);
+        for (int i = 0; i < n; i++) a[i] = copy[i1[i]];
     }
 
-    private static <T> void quickSortRecursive(T[] a, int low, int high, Comparator<? super T> cmp) {
-        if (low >= high) {
+    // ---------------------------------------------------------------------
+    // Parallel (fork/join) sorts
+    // ---------------------------------------------------------------------
+
+    // Ranges below this size are sorted sequentially by a single task
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    public static <T> void parallelMergeSort(T[] a, Comparator<? super T> cmp) {
+        parallelMergeSort(a, cmp, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    // Stable parallel merge sort: halves are sorted as separate tasks and then merged by a
+    // task tree that splits both runs around a binary-searched median
+    public static <T> void parallelMergeSort(T[] a, Comparator<? super T> cmp, int parallelism) {
+        if (a == null || a.length <= 1) return;
+        if (parallelism <= 1 || a.length < PARALLEL_THRESHOLD) {
+            mergeSort(a, cmp);
             return;
         }
+        T[] buf = Arrays.copyOf(a, a.length);
+        invoke(new MergeSortTask<>(a, buf, 0, a.length, cmp), parallelism);
+    }
+
+    public static <T> void parallelQuickSort(T[] a, Comparator<? super T> cmp) {
+        parallelQuickSort(a, cmp, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    // Parallel introsort: each partition step forks the smaller side; not stable
+    public static <T> void parallelQuickSort(T[] a, Comparator<? super T> cmp, int parallelism) {
+        if (a == null || a.length <= 1) return;
+        if (parallelism <= 1 || a.length < PARALLEL_THRESHOLD) {
+            quickSort(a, cmp);
+            return;
+        }
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(a.length));
+        invoke(new QuickSortTask<>(a, 0, a.length - 1, depthLimit, cmp), parallelism);
+    }
+
+    // Runs the task in the common pool when it matches the requested parallelism,
+    // otherwise in a dedicated pool that is shut down afterwards
+    private static void invoke(RecursiveAction task, int parallelism) {
+        if (parallelism == ForkJoinPool.getCommonPoolParallelism()) {
+            ForkJoinPool.commonPool().invoke(task);
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(task);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static final class MergeSortTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final T[] a, buf;
+        private final int from, to;
+        private final Comparator<? super T> cmp;
+
+        MergeSortTask(T[] a, T[] buf, int from, int to, Comparator<? super T> cmp) {
+            this.a = a; this.buf = buf; this.from = from; this.to = to; this.cmp = cmp;
+        }
 
-        // Select the last element as the pivot
-        T pivot = a[high];
+        @Override protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                mergeSortRange(a, buf, from, to, cmp);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MergeSortTask<>(a, buf, from, mid, cmp), new MergeSortTask<>(a, buf, mid, to, cmp));
+            if (cmp.compare(a[mid - 1], a[mid]) <= 0) return;
+            invokeAll(new MergeTask<>(a, buf, from, mid, mid, to, from, cmp));
+            System.arraycopy(buf, from, a, from, to - from);
+        }
+    }
 
-        int i = low;
+    // Merges src[l1, h1) and src[l2, h2) into dst starting at out; ties take the first run
+    private static final class MergeTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final T[] src, dst;
+        private final int l1, h1, l2, h2, out;
+        private final Comparator<? super T> cmp;
 
-        // Partition: move elements smaller than or equal to pivot to the left
-        for (int j = low; j < high; j++) {
-            if (cmp.compare(a[j], pivot) <= 0) {
-                if (i != j) {
-                    // Swap a[i] and a[j]
-                    T temp = a[i];
-                    a[i] = a[j];
-                    a[j] = temp;
+        MergeTask(T[] src, T[] dst, int l1, int h1, int l2, int h2, int out, Comparator<? super T> cmp) {
+            this.src = src; this.dst = dst;
+            this.l1 = l1; this.h1 = h1; this.l2 = l2; this.h2 = h2; this.out = out;
+            this.cmp = cmp;
+        }
+
+        @Override protected void compute() {
+            int n1 = h1 - l1, n2 = h2 - l2;
+            if (n1 + n2 <= PARALLEL_THRESHOLD) {
+                int i = l1, j = l2, k = out;
+                while (i < h1 && j < h2) {
+                    dst[k++] = cmp.compare(src[i], src[j]) <= 0 ? src[i++] : src[j++];
                 }
-                i++;
+                while (i < h1) dst[k++] = src[i++];
+                while (j < h2) dst[k++] = src[j++];
+                return;
+            }
+            // Split the longer run at its middle and the other run where that key belongs;
+            // the bound choice keeps equal keys from the first run ahead of the second
+            int m1, m2;
+            if (n1 >= n2) {
+                m1 = (l1 + h1) >>> 1;
+                m2 = lowerBound(src, l2, h2, src[m1], cmp);
+            } else {
+                m2 = (l2 + h2) >>> 1;
+                m1 = upperBound(src, l1, h1, src[m2], cmp);
             }
+            int split = out + (m1 - l1) + (m2 - l2);
+            invokeAll(new MergeTask<>(src, dst, l1, m1, l2, m2, out, cmp),
+                      new MergeTask<>(src, dst, m1, h1, m2, h2, split, cmp));
         }
+    }
 
-        // Place the pivot in its correct sorted position
-        if (i != high) {
-            T temp = a[i];
-            a[i] = a[high];
-            a[high] = temp;
+    private static final class QuickSortTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final T[] a;
+        private final int low, high, depthLimit;
+        private final Comparator<? super T> cmp;
+
+        QuickSortTask(T[] a, int low, int high, int depthLimit, Comparator<? super T> cmp) {
+            this.a = a; this.low = low; this.high = high; this.depthLimit = depthLimit; this.cmp = cmp;
         }
 
-        // Recursively sort the sub-arrays before and after the pivot
-        quickSortRecursive(a, low, i - 1, cmp); // Left side
-        quickSortRecursive(a, i + 1, high, cmp); // Right side
+        @Override protected void compute() {
+            int low = this.low, high = this.high, depthLimit = this.depthLimit;
+            List<RecursiveAction> forked = new ArrayList<>();
+            while (high - low + 1 > PARALLEL_THRESHOLD) {
+                if (depthLimit-- == 0) {
+                    heapSort(a, low, high, cmp);
+                    break;
+                }
+                T pivot = a[choosePivot(a, low, high, cmp)];
+                int lt = low, i = low, gt = high;
+                while (i <= gt) {
+                    int c = cmp.compare(a[i], pivot);
+                    if (c < 0) {
+                        swap(a, lt++, i++);
+                    } else if (c > 0) {
+                        swap(a, i, gt--);
+                    } else {
+                        i++;
+                    }
+                }
+                // Fork the smaller side, keep partitioning the larger one here
+                RecursiveAction task;
+                if (lt - low < high - gt) {
+                    task = new QuickSortTask<>(a, low, lt - 1, depthLimit, cmp);
+                    low = gt + 1;
+                } else {
+                    task = new QuickSortTask<>(a, gt + 1, high, depthLimit, cmp);
+                    high = lt - 1;
+                }
+                task.fork();
+                forked.add(task);
+            }
+            if (high - low + 1 <= PARALLEL_THRESHOLD) introSort(a, low, high, depthLimit, cmp);
+            for (RecursiveAction task : forked) task.join();
+        }
     }
-}
\ No newline at end of file
+}
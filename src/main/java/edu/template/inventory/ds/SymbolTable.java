@@ -0,0 +1,60 @@
+package edu.template.inventory.ds;
+
+// Dictionary of distinct strings with dense int codes (0, 1, 2, ... in first-seen order).
+// Values that repeat across many records, such as categories, are stored once and referred
+// to by code, so equal values share one instance and compare as ints. Codes are never
+// reused or removed, so a table lives as long as what holds its codes: intern only
+// low-cardinality values into a long-lived table.
+// code, symbol and the hit path of intern are lock-free (the code index is a
+// ConcurrentHashTable and a code is only handed out after its string is published); only
+// adding a new value locks, so parallel loaders do not queue on a monitor per row
+public final class SymbolTable {
+    private final ConcurrentHashTable<String, Integer> codes = new ConcurrentHashTable<>();
+    private volatile String[] symbols = new String[16];
+    private volatile int size;
+
+    public int size() { return size; }
+
+    // Code for value, adding it if it is new
+    public int intern(String value) {
+        Integer code = codes.get(value);
+        return code != null ? code : add(value);
+    }
+
+    private synchronized int add(String value) {
+        Integer code = codes.get(value);
+        if (code != null) return code;
+
+        int n = size;
+        String[] s = symbols;
+        if (n == s.length) {
+            String[] grown = new String[n * 2];
+            System.arraycopy(s, 0, grown, 0, n);
+            symbols = s = grown;
+        }
+        s[n] = value;
+        // Volatile write before the code is published: readers that see the new size or
+        // the code also see the slot
+        size = n + 1;
+        codes.put(value, n);
+        return n;
+    }
+
+    // Code for value, or -1 if it has never been interned
+    public int code(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    public String symbol(int code) {
+        if (code < 0 || code >= size) {
+            throw new IndexOutOfBoundsException("Unknown symbol code: " + code);
+        }
+        return symbols[code];
+    }
+
+    // The shared instance equal to value
+    public String canonical(String value) {
+        return symbol(intern(value));
+    }
+}
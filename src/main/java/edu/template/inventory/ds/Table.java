@@ -0,0 +1,24 @@
+package edu.template.inventory.ds;
+
+import java.util.function.BiConsumer;
+
+// Key -> value operations shared by HashTable and ConcurrentHashTable, so an index can be
+// built on either: HashTable when one thread uses it at a time, ConcurrentHashTable when
+// lookups run without a lock alongside its writer
+public interface Table<K,V> {
+    int size();
+
+    boolean isEmpty();
+
+    // Returns the previous value for key, or null
+    V put(K key, V value);
+
+    V get(K key);
+
+    boolean containsKey(K key);
+
+    // Returns the removed value, or null
+    V remove(K key);
+
+    void forEach(BiConsumer<K,V> consumer);
+}
@@ -0,0 +1,219 @@
+package edu.template.inventory.ds;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+// Linked list of array chunks: a traversal touches one node per chunk instead of one per
+// element, and get(i) skips whole chunks by their counts. Chunks are only ever merged
+// (never split or rebalanced), so any two neighbours together hold more than one chunk's
+// worth and the list stays at least half full.
+// addLast returns the element's chunk as a handle; remove(handle, item) then only scans
+// that chunk, which keeps removal by key O(chunk) when the owner stores the handle
+public class UnrolledLinkedList<T> implements Iterable<T> {
+    private static final int DEFAULT_CHUNK = 64;
+
+    public static final class Chunk<T> {
+        Object[] items;
+        int count;
+        Chunk<T> prev;
+        Chunk<T> next;
+        // Set when this chunk was merged into another: its items now live there
+        Chunk<T> forward;
+
+        Chunk(int capacity) {
+            this.items = new Object[capacity];
+        }
+    }
+
+    private final int chunkSize;
+    private Chunk<T> head;
+    private Chunk<T> tail;
+    private int size;
+
+    public UnrolledLinkedList() {
+        this(DEFAULT_CHUNK);
+    }
+
+    public UnrolledLinkedList(int chunkSize) {
+        if (chunkSize < 2) {
+            throw new IllegalArgumentException("chunkSize must be >= 2");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public Chunk<T> addLast(T item) {
+        if (tail == null || tail.count == chunkSize) {
+            Chunk<T> chunk = new Chunk<>(chunkSize);
+            chunk.prev = tail;
+            if (tail == null) head = chunk; else tail.next = chunk;
+            tail = chunk;
+        }
+        tail.items[tail.count++] = item;
+        size++;
+        return tail;
+    }
+
+    public void addAll(Iterable<? extends T> items) {
+        for (T item : items) addLast(item);
+    }
+
+    // Walks chunk counts from whichever end is closer; at is set to the offset inside the chunk
+    private Chunk<T> chunkFor(int index, int[] at) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Chunk<T> c;
+        if (index < size / 2) {
+            c = head;
+            while (index >= c.count) {
+                index -= c.count;
+                c = c.next;
+            }
+        } else {
+            int fromEnd = size - 1 - index;
+            c = tail;
+            while (fromEnd >= c.count) {
+                fromEnd -= c.count;
+                c = c.prev;
+            }
+            index = c.count - 1 - fromEnd;
+        }
+        at[0] = index;
+        return c;
+    }
+
+    public T get(int index) {
+        int[] at = new int[1];
+        Chunk<T> c = chunkFor(index, at);
+        return (T) c.items[at[0]];
+    }
+
+    public T set(int index, T item) {
+        int[] at = new int[1];
+        Chunk<T> c = chunkFor(index, at);
+        T old = (T) c.items[at[0]];
+        c.items[at[0]] = item;
+        return old;
+    }
+
+    public T removeAt(int index) {
+        int[] at = new int[1];
+        Chunk<T> c = chunkFor(index, at);
+        return removeFrom(c, at[0]);
+    }
+
+    // Removes item (by identity) from the chunk returned when it was added; O(chunk)
+    public T remove(Chunk<T> handle, T item) {
+        Chunk<T> c = resolve(handle);
+        if (c == null) {
+            throw new IllegalArgumentException("Chunk is not linked");
+        }
+        for (int i = 0; i < c.count; i++) {
+            if (c.items[i] == item) return removeFrom(c, i);
+        }
+        throw new IllegalArgumentException("Item is not in its chunk");
+    }
+
+    // Live chunk now holding the handle's items, or null once they are all gone.
+    // Forward chains are shortened as they are followed
+    private Chunk<T> resolve(Chunk<T> handle) {
+        Chunk<T> c = handle;
+        while (c.forward != null) c = c.forward;
+        while (handle.forward != null) {
+            Chunk<T> next = handle.forward;
+            handle.forward = c;
+            handle = next;
+        }
+        return c.items == null ? null : c;
+    }
+
+    private T removeFrom(Chunk<T> c, int i) {
+        T item = (T) c.items[i];
+        System.arraycopy(c.items, i + 1, c.items, i, c.count - i - 1);
+        c.items[--c.count] = null;
+        size--;
+
+        if (c.count == 0) {
+            unlinkChunk(c);
+        } else if (c.next != null && c.count + c.next.count <= chunkSize) {
+            merge(c, c.next);
+        } else if (c.prev != null && c.prev.count + c.count <= chunkSize) {
+            merge(c.prev, c);
+        }
+        return item;
+    }
+
+    // Appends from's items to into (its predecessor) and retires from
+    private void merge(Chunk<T> into, Chunk<T> from) {
+        System.arraycopy(from.items, 0, into.items, into.count, from.count);
+        into.count += from.count;
+        unlinkChunk(from);
+        from.forward = into;
+    }
+
+    private void unlinkChunk(Chunk<T> c) {
+        if (c.prev == null) head = c.next; else c.prev.next = c.next;
+        if (c.next == null) tail = c.prev; else c.next.prev = c.prev;
+        c.prev = null;
+        c.next = null;
+        c.items = null;
+        c.count = 0;
+    }
+
+    public void clear() {
+        // Retire every chunk so handles still held by callers read as unlinked
+        Chunk<T> c = head;
+        while (c != null) {
+            Chunk<T> next = c.next;
+            c.prev = null;
+            c.next = null;
+            c.items = null;
+            c.count = 0;
+            c = next;
+        }
+        head = null;
+        tail = null;
+        size = 0;
+    }
+
+    // Number of chunks currently linked
+    public int chunkCount() {
+        int n = 0;
+        for (Chunk<T> c = head; c != null; c = c.next) n++;
+        return n;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private Chunk<T> chunk = head;
+            private int i = 0;
+
+            public boolean hasNext() { return chunk != null; }
+
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("No more elements");
+                }
+                T item = (T) chunk.items[i++];
+                if (i == chunk.count) {
+                    chunk = chunk.next;
+                    i = 0;
+                }
+                return item;
+            }
+
+            public void forEachRemaining(Consumer<? super T> action) {
+                for (; chunk != null; chunk = chunk.next, i = 0) {
+                    Object[] items = chunk.items;
+                    for (int n = chunk.count; i < n; i++) action.accept((T) items[i]);
+                }
+            }
+        };
+    }
+}
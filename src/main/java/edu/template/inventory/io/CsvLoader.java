@@ -1,32 +1,224 @@
-
 package edu.template.inventory.io;
 
 import edu.template.inventory.model.Product;
 import java.util.*;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 public class CsvLoader {
+    // Read size; rows longer than this grow the buffer
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Files below this are loaded sequentially; splitting them costs more than it saves
+    private static final long PARALLEL_MIN_BYTES = 8L << 20;
+    // Target chunk size for the parallel loader: several chunks per worker for balance,
+    // each small enough to read into one array
+    private static final int CHUNK_BYTES = 16 << 20;
+
+    // A row that could not be turned into a product
+    public static final class Rejected {
+        public final long line;
+        public final String reason;
+        public final String text;
+        Rejected(long line, String reason, String text) {
+            this.line = line;
+            this.reason = reason;
+            this.text = text;
+        }
+
+        @Override public String toString() {
+            return "line " + line + ": " + reason + " | " + text;
+        }
+    }
+
+    // Loaded products plus what was skipped and how fast the file was read
+    public static final class Result {
+        // Empty for stream(), which hands products to its consumer instead
+        public final List<Product> products;
+        public final long loaded;
+        public final long rejectedCount;
+        // The first CsvParser.MAX_SAMPLES rejected rows, in file order
+        public final List<Rejected> rejected;
+        public final long bytes;
+        public final long nanos;
+        Result(List<Product> products, long loaded, long rejectedCount, List<Rejected> rejected, long bytes, long nanos) {
+            this.products = products;
+            this.loaded = loaded;
+            this.rejectedCount = rejectedCount;
+            this.rejected = rejected;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        public double megabytesPerSecond() { return bytes / 1e6 / (nanos / 1e9); }
+
+        public double rowsPerSecond() { return (loaded + rejectedCount) / (nanos / 1e9); }
+    }
+
     public static List<Product> load(String path) throws IOException {
+        return loadWithReport(path).products;
+    }
+
+    // Malformed rows are reported instead of aborting the load
+    public static Result loadWithReport(String path) throws IOException {
         List<Product> out = new ArrayList<>();
-        try (BufferedReader br = Files.newBufferedReader(Paths.get(path))) {
-            String line = br.readLine(); // header
-            if (line == null) return out;
-            while ((line = br.readLine()) != null) {
-                String[] t = splitCsv(line);
-                if (t.length < 5) continue;
-                String sku = t[0];
-                String name = t[1];
-                String cat = t[2];
-                double price = Double.parseDouble(t[3]);
-                int stock = Integer.parseInt(t[4]);
-                out.add(new Product(sku, name, cat, price, stock));
+        Result r = stream(path, out::add);
+        return new Result(out, r.loaded, r.rejectedCount, r.rejected, r.bytes, r.nanos);
+    }
+
+    // Hands each product to consumer as soon as its row is parsed, without collecting
+    // them; memory use is one read buffer plus the parser's fixed-size name and category
+    // caches, whatever the file size. Reads the file in large blocks and parses rows
+    // straight from the bytes (see CsvParser)
+    public static Result stream(String path, Consumer<Product> consumer) throws IOException {
+        long t0 = System.nanoTime();
+        CsvParser parser = new CsvParser(consumer, true, 1);
+        long bytes = 0;
+        try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            byte[] buf = new byte[BUFFER_SIZE];
+            int len = 0;
+            boolean eof = false;
+            while (!eof) {
+                int n = ch.read(ByteBuffer.wrap(buf, len, buf.length - len));
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    len += n;
+                    bytes += n;
+                }
+                int used = parser.parse(buf, 0, len, eof);
+                // Keep the unfinished last row for the next read
+                System.arraycopy(buf, used, buf, 0, len - used);
+                len -= used;
+                if (len == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+        }
+        return new Result(Collections.emptyList(), parser.loaded, parser.rejectedCount, parser.rejected, bytes, System.nanoTime() - t0);
+    }
+
+    public static Result loadParallel(String path) throws IOException {
+        return loadParallel(path, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Splits the file into byte ranges that start right after a newline, parses them on
+    // parallelism workers and concatenates the results in file order. A newline inside a
+    // quoted field makes a bad split point; the chunk before it then ends inside the quote,
+    // and the file is re-read sequentially so results always match loadWithReport
+    public static Result loadParallel(String path, int parallelism) throws IOException {
+        long t0 = System.nanoTime();
+        Path file = Paths.get(path);
+        long size = Files.size(file);
+        if (parallelism <= 1 || size < PARALLEL_MIN_BYTES) return loadWithReport(path);
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(ch, size, (int) Math.max(BUFFER_SIZE, Math.min(CHUNK_BYTES, size / parallelism)));
+            int chunks = bounds.length - 1;
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            CsvParser[] parsers = new CsvParser[chunks];
+            List<List<Product>> parts = new ArrayList<>(chunks);
+            try {
+                List<Future<?>> tasks = new ArrayList<>(chunks);
+                for (int i = 0; i < chunks; i++) {
+                    List<Product> part = new ArrayList<>();
+                    parts.add(part);
+                    parsers[i] = new CsvParser(part::add, i == 0, 0);
+                    CsvParser parser = parsers[i];
+                    long from = bounds[i], to = bounds[i + 1];
+                    tasks.add(pool.submit(() -> {
+                        byte[] buf = read(ch, from, (int) (to - from));
+                        parser.parse(buf, 0, buf.length, true);
+                        return null;
+                    }));
+                }
+                for (Future<?> task : tasks) task.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Parallel load interrupted");
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof IOException) throw (IOException) ex.getCause();
+                throw new IOException("Parallel load failed", ex.getCause());
+            } finally {
+                pool.shutdown();
+            }
+
+            for (int i = 0; i < chunks - 1; i++) {
+                if (parsers[i].endedInQuote) return loadWithReport(path);
+            }
+
+            // Stitch chunks together in order; line numbers were counted per chunk
+            int total = 0;
+            for (List<Product> part : parts) total += part.size();
+            List<Product> out = new ArrayList<>(total);
+            List<Rejected> rejected = new ArrayList<>();
+            long rejectedCount = 0;
+            long firstLine = 1;
+            for (int i = 0; i < chunks; i++) {
+                out.addAll(parts.get(i));
+                parts.set(i, null);
+                for (Rejected r : parsers[i].rejected) {
+                    if (rejected.size() < CsvParser.MAX_SAMPLES) {
+                        rejected.add(new Rejected(firstLine + r.line, r.reason, r.text));
+                    }
+                }
+                rejectedCount += parsers[i].rejectedCount;
+                firstLine += parsers[i].line;
             }
+            return new Result(out, out.size(), rejectedCount, rejected, size, System.nanoTime() - t0);
         }
+    }
+
+    // Chunk start offsets (plus size at the end): every start but the first sits just
+    // after a newline at or past a multiple of chunkBytes
+    private static long[] chunkBounds(FileChannel ch, long size, int chunkBytes) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(64 << 10);
+        long pos = chunkBytes;
+        while (pos < size) {
+            long boundary = -1;
+            long at = pos;
+            while (boundary < 0 && at < size) {
+                probe.clear();
+                int n = ch.read(probe, at);
+                if (n <= 0) break;
+                for (int i = 0; i < n; i++) {
+                    if (probe.get(i) == '\n') { boundary = at + i + 1; break; }
+                }
+                at += n;
+            }
+            if (boundary < 0 || boundary >= size) break;
+            bounds.add(boundary);
+            pos = boundary + chunkBytes;
+        }
+        bounds.add(size);
+        long[] out = new long[bounds.size()];
+        for (int i = 0; i < out.length; i++) out[i] = bounds.get(i);
         return out;
     }
 
-    private static String[] splitCsv(String line) {
-        return line.split(",", -1);
+    private static byte[] read(FileChannel ch, long from, int len) throws IOException {
+        byte[] buf = new byte[len];
+        ByteBuffer bb = ByteBuffer.wrap(buf);
+        while (bb.hasRemaining()) {
+            int n = ch.read(bb, from + bb.position());
+            if (n < 0) throw new EOFException("File shrank while loading");
+        }
+        return buf;
+    }
+
+    // Field text for writing: quoted (with " doubled) when it holds a comma, quote or line break
+    public static String escape(String field) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + field.replace("\"", "\"\"") + '"';
+            }
+        }
+        return field;
     }
 }
@@ -0,0 +1,338 @@
+package edu.template.inventory.io;
+
+import edu.template.inventory.ds.SymbolTable;
+import edu.template.inventory.model.Product;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Byte-level parser for sku,name,category,price,stock rows. Works straight on the read
+// buffer: fields are located as byte ranges, numbers are parsed from the bytes, and names
+// and categories go through a per-parser cache (to a shared String for names, to the
+// Product.CATEGORIES code for categories), so the only String built per row is the SKU.
+// Quoting follows RFC 4180: a field wrapped in double quotes may hold commas, newlines and
+// doubled quotes (""). Lines end in \n or \r\n. Rows that cannot be turned into a product
+// are counted and the first MAX_SAMPLES are kept for the report; blank lines are skipped.
+// Not thread-safe: each thread parses with its own instance
+final class CsvParser {
+    static final int MAX_SAMPLES = 100;
+    private static final int FIELDS = 5;
+    // Rejected row text is cut to this many bytes in the report
+    private static final int SAMPLE_TEXT = 200;
+    // Exact powers of ten: a mantissa below 2^53 divided by one of these rounds exactly
+    // like Double.parseDouble
+    private static final double[] POW10 = new double[23];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+    }
+
+    private final Consumer<Product> sink;
+    private boolean skipHeader;
+    private boolean atStart;
+    // Physical line number of the next row (1-based; the header is line 1)
+    long line;
+    long loaded;
+    long rejectedCount;
+    final List<CsvLoader.Rejected> rejected = new ArrayList<>();
+    // Set when the input ended inside a quoted field. For a file chunk this means the
+    // chunk did not really start or end on a row boundary
+    boolean endedInQuote;
+
+    private final int[] start = new int[FIELDS];
+    private final int[] end = new int[FIELDS];
+    private final boolean[] quoted = new boolean[FIELDS];
+    private byte[] scratch = new byte[64];
+    // Names can be as many as the rows, so their cache keeps only the most recent ones
+    private final SymbolCache names = new SymbolCache(null, 4096, 1 << 20);
+    private final SymbolCache categories = new SymbolCache(Product.CATEGORIES, 256, 64 << 10);
+
+    // Rows are counted from firstLine. At the start of a file a byte order mark and the
+    // header row are skipped; a parser for a later chunk starts straight at a row
+    CsvParser(Consumer<Product> sink, boolean fileStart, long firstLine) {
+        this.sink = sink;
+        this.skipHeader = fileStart;
+        this.atStart = fileStart;
+        this.line = firstLine;
+    }
+
+    // Parses the complete rows in b[from, to) and returns the offset of the first byte not
+    // consumed. Unless eof is set, a last row without its line end is left for the next
+    // call (with more data appended)
+    int parse(byte[] b, int from, int to, boolean eof) {
+        int pos = from;
+        if (atStart) {
+            // UTF-8 byte order mark
+            if (to - pos < 3 && !eof) return pos;
+            if (to - pos >= 3 && b[pos] == (byte) 0xEF && b[pos + 1] == (byte) 0xBB && b[pos + 2] == (byte) 0xBF) pos += 3;
+            atStart = false;
+        }
+        while (pos < to) {
+            int next = row(b, pos, to, eof);
+            if (next < 0) break;
+            pos = next;
+        }
+        return pos;
+    }
+
+    // Parses one row starting at rowStart; returns the offset after its line end, or -1
+    // if the row is incomplete and more data may follow
+    private int row(byte[] b, int rowStart, int to, boolean eof) {
+        int pos = rowStart;
+        int fields = 0;
+        int newlines = 0;
+        String error = null;
+
+        for (;;) {
+            int fs, fe;
+            boolean q = false;
+            if (pos < to && b[pos] == '"') {
+                q = true;
+                fs = ++pos;
+                for (;;) {
+                    if (pos >= to) {
+                        if (!eof) return -1;
+                        error = "unterminated quoted field";
+                        endedInQuote = true;
+                        break;
+                    }
+                    byte c = b[pos];
+                    if (c == '"') {
+                        if (pos + 1 < to && b[pos + 1] == '"') { pos += 2; continue; }
+                        if (pos + 1 >= to && !eof) return -1;
+                        break;
+                    }
+                    if (c == '\n') newlines++;
+                    pos++;
+                }
+                fe = pos;
+                if (error == null) {
+                    pos++; // closing quote
+                    if (pos < to && b[pos] == '\r') {
+                        if (pos + 1 == to && !eof) return -1;
+                        if (pos + 1 < to && b[pos + 1] == '\n') pos++;
+                    }
+                    if (pos == to && !eof) return -1;
+                    if (pos < to && b[pos] != ',' && b[pos] != '\n') {
+                        error = "text after closing quote";
+                    }
+                }
+            } else {
+                fs = pos;
+                while (pos < to && b[pos] != ',' && b[pos] != '\n') pos++;
+                fe = pos;
+                if (pos == to && !eof) return -1;
+                // \r of a \r\n line end
+                if (fe > fs && b[fe - 1] == '\r' && (pos == to || b[pos] == '\n')) fe--;
+            }
+
+            if (fields < FIELDS) {
+                start[fields] = fs;
+                end[fields] = fe;
+                quoted[fields] = q;
+            }
+            fields++;
+
+            if (error != null) {
+                // Skip the rest of the physical line
+                while (pos < to && b[pos] != '\n') pos++;
+                if (pos == to && !eof) return -1;
+                break;
+            }
+            if (pos >= to || b[pos] == '\n') break;
+            pos++; // comma
+        }
+
+        int rowEnd = pos < to ? pos + 1 : pos;
+        long rowLine = line;
+        line += 1 + newlines;
+
+        if (skipHeader) {
+            skipHeader = false;
+        } else if (fields == 1 && !quoted[0] && end[0] == start[0]) {
+            // Blank line
+        } else if (error != null) {
+            reject(rowLine, error, b, rowStart, pos);
+        } else if (fields < FIELDS) {
+            reject(rowLine, "expected " + FIELDS + " fields, found " + fields, b, rowStart, pos);
+        } else {
+            emit(b, rowLine, rowStart, pos);
+        }
+        return rowEnd;
+    }
+
+    private void emit(byte[] b, long rowLine, int rowStart, int rowEnd) {
+        double price = parseDouble(b, 3);
+        if (Double.isNaN(price)) {
+            reject(rowLine, "bad price", b, rowStart, rowEnd);
+            return;
+        }
+        long stock = parseInt(b, 4);
+        if (stock == Long.MIN_VALUE) {
+            reject(rowLine, "bad stock", b, rowStart, rowEnd);
+            return;
+        }
+        String sku = text(b, 0);
+        String name = names.text(slot(names, b, 1));
+        int category = categories.code(slot(categories, b, 2));
+        sink.accept(new Product(sku, name, category, price, (int) stock));
+        loaded++;
+    }
+
+    private void reject(long rowLine, String reason, byte[] b, int from, int to) {
+        rejectedCount++;
+        if (rejected.size() < MAX_SAMPLES) {
+            int len = Math.min(to - from, SAMPLE_TEXT);
+            if (len > 0 && b[from + len - 1] == '\r') len--;
+            rejected.add(new CsvLoader.Rejected(rowLine, reason, new String(b, from, len, StandardCharsets.UTF_8)));
+        }
+    }
+
+    // Copies field f into scratch with "" collapsed to "; returns its length
+    private int unescape(byte[] b, int f) {
+        int len = end[f] - start[f];
+        if (scratch.length < len) scratch = new byte[Math.max(len, scratch.length * 2)];
+        int n = 0;
+        for (int i = start[f]; i < end[f]; i++) {
+            scratch[n++] = b[i];
+            if (b[i] == '"') i++;
+        }
+        return n;
+    }
+
+    private int slot(SymbolCache cache, byte[] b, int f) {
+        if (!quoted[f]) return cache.slot(b, start[f], end[f]);
+        int len = unescape(b, f);
+        return cache.slot(scratch, 0, len);
+    }
+
+    private String text(byte[] b, int f) {
+        if (quoted[f]) {
+            int len = unescape(b, f);
+            return new String(scratch, 0, len, StandardCharsets.UTF_8);
+        }
+        return new String(b, start[f], end[f] - start[f], StandardCharsets.UTF_8);
+    }
+
+    // Decimal without exponent and at most 15 digits is parsed from the bytes; anything
+    // else goes through Double.parseDouble. NaN means unparseable
+    private double parseDouble(byte[] b, int f) {
+        int s = start[f], e = end[f];
+        if (quoted[f]) {
+            e = unescape(b, f);
+            b = scratch;
+            s = 0;
+        }
+        int i = s;
+        boolean negative = false;
+        if (i < e && (b[i] == '-' || b[i] == '+')) negative = b[i++] == '-';
+        long mantissa = 0;
+        int digits = 0, fraction = -1;
+        for (; i < e; i++) {
+            int d = b[i] - '0';
+            if (d >= 0 && d <= 9) {
+                mantissa = mantissa * 10 + d;
+                digits++;
+                if (fraction >= 0) fraction++;
+            } else if (b[i] == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                break;
+            }
+        }
+        if (i == e && digits > 0 && digits <= 15) {
+            double v = fraction > 0 ? mantissa / POW10[fraction] : mantissa;
+            return negative ? -v : v;
+        }
+        try {
+            double v = Double.parseDouble(new String(b, s, e - s, StandardCharsets.ISO_8859_1));
+            return Double.isNaN(v) ? Double.NaN : v;
+        } catch (NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+
+    // Optionally signed decimal int; Long.MIN_VALUE if malformed or out of int range
+    private long parseInt(byte[] b, int f) {
+        int s = start[f], e = end[f];
+        if (quoted[f]) {
+            e = unescape(b, f);
+            b = scratch;
+            s = 0;
+        }
+        int i = s;
+        boolean negative = false;
+        if (i < e && (b[i] == '-' || b[i] == '+')) negative = b[i++] == '-';
+        if (i == e) return Long.MIN_VALUE;
+        long v = 0;
+        for (; i < e; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) return Long.MIN_VALUE;
+            v = v * 10 + d;
+            if (v > (long) Integer.MAX_VALUE + 1) return Long.MIN_VALUE;
+        }
+        v = negative ? -v : v;
+        return v > Integer.MAX_VALUE || v < Integer.MIN_VALUE ? Long.MIN_VALUE : v;
+    }
+
+    // Field bytes -> String (and its code when the cache has a dictionary), so a repeated
+    // name or category is looked up by its bytes and a String is only built the first time
+    // it is seen. Direct-mapped with a fixed number of slots: a new value replaces whatever
+    // shared its slot, and a value whose bytes would take the cached keys past maxBytes is
+    // used but not kept, so the cache stays bounded however many distinct values a feed has
+    private static final class SymbolCache {
+        private final SymbolTable table;
+        private final int maxBytes;
+        // Bytes held by keys
+        private int bytes;
+        private final byte[][] keys;
+        private final int[] hashes;
+        private final String[] texts;
+        private final int[] codes;
+
+        // table may be null: then values are only shared, not interned. slots is a power of two
+        SymbolCache(SymbolTable table, int slots, int maxBytes) {
+            this.table = table;
+            this.maxBytes = maxBytes;
+            keys = new byte[slots][];
+            hashes = new int[slots];
+            texts = new String[slots];
+            codes = new int[slots];
+        }
+
+        String text(int slot) { return texts[slot]; }
+
+        int code(int slot) { return codes[slot]; }
+
+        // Slot holding the value of b[from, to), filled in if it held something else;
+        // valid until the next call
+        int slot(byte[] b, int from, int to) {
+            int h = 0;
+            for (int i = from; i < to; i++) h = 31 * h + b[i];
+            int slot = (h ^ (h >>> 16)) & (keys.length - 1);
+            byte[] key = keys[slot];
+            if (key != null && hashes[slot] == h && Arrays.equals(key, 0, key.length, b, from, to)) {
+                return slot;
+            }
+            String text = new String(b, from, to - from, StandardCharsets.UTF_8);
+            if (table != null) {
+                int code = table.intern(text);
+                codes[slot] = code;
+                text = table.symbol(code);
+            }
+            if (key != null) bytes -= key.length;
+            if (bytes + (to - from) <= maxBytes) {
+                keys[slot] = Arrays.copyOfRange(b, from, to);
+                bytes += to - from;
+            } else {
+                keys[slot] = null;
+            }
+            hashes[slot] = h;
+            texts[slot] = text;
+            return slot;
+        }
+    }
+}
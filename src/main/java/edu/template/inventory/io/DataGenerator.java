@@ -33,8 +33,8 @@ public class DataGenerator {
         try (BufferedWriter bw = Files.newBufferedWriter(p)) {
             bw.write("sku,name,category,price,stock\n");
             for (Product pr : items) {
-                bw.write(String.format("%s,%s,%s,%.2f,%d%n",
-                        pr.getSku(), pr.getName(), pr.getCategory(), pr.getPrice(), pr.getStock()));
+                bw.write(String.format(Locale.ROOT, "%s,%s,%s,%.2f,%d%n",
+                        CsvLoader.escape(pr.getSku()), CsvLoader.escape(pr.getName()), CsvLoader.escape(pr.getCategory()), pr.getPrice(), pr.getStock()));
             }
         }
     }
@@ -0,0 +1,395 @@
+package edu.template.inventory.io;
+
+import edu.template.inventory.model.Product;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+// Append-only log of catalog changes, replayed on top of the last snapshot after a restart.
+// The file is a 4-byte magic number followed by records:
+//   int length | byte type | fields | int CRC32C of type and fields
+// with strings stored as an int byte count plus UTF-8. Appending only encodes the record
+// into a buffer and returns its LSN (the log position after it); await(lsn) then writes it
+// out and forces it to disk as the policy says. LSNs keep counting across roll, so they
+// order every change ever logged.
+// A torn or corrupt record ends the log: replay stops there and open cuts it off, so a crash
+// loses at most records nobody had awaited yet. Thread-safe
+public final class WriteAheadLog implements Closeable {
+
+    // How await makes records durable
+    public enum FsyncPolicy {
+        // Every record is written and forced on its own: one device flush per change
+        EVERY_WRITE,
+        // Group commit: one waiting thread writes and forces everything appended so far
+        // while the others wait, and records appended during that flush go out together in
+        // the next one. Durable on return like EVERY_WRITE, with far fewer flushes under load
+        GROUP,
+        // Written to the OS but never forced: survives a process crash, not a power cut
+        NONE
+    }
+
+    // Receives logged changes in log order
+    public interface Replay {
+        void add(Product p);
+        void remove(String sku);
+        void price(String sku, double price);
+        void stock(String sku, int delta);
+    }
+
+    private static final int MAGIC = 0x49574C31; // "IWL1"
+    private static final int HEADER = 4;
+    // Length and checksum around each record
+    private static final int FRAMING = 8;
+    // A longer length field can only come from a torn write
+    private static final int MAX_RECORD = 16 << 20;
+    private static final int BUFFER_SIZE = 64 << 10;
+    private static final byte ADD = 1, REMOVE = 2, PRICE = 3, STOCK = 4;
+
+    private final Path path;
+    private final FsyncPolicy policy;
+    private final CRC32C crc = new CRC32C();
+
+    // Records appended but not yet written, and the LSN after the last one; guarded by this
+    private byte[] buf = new byte[BUFFER_SIZE];
+    private int size;
+    private long appended;
+    private boolean closed;
+
+    // Everything before this LSN is written (and forced, unless NONE)
+    private volatile long durable;
+    // Held while writing; guards the fields below
+    private final Object flushLock = new Object();
+    private FileChannel channel;
+    // The previous batch buffer, swapped in for the next one
+    private byte[] spare = new byte[BUFFER_SIZE];
+    // Set when a write failed: the records in that batch are lost, so the log ends there
+    private IOException failure;
+
+    private WriteAheadLog(Path path, FsyncPolicy policy, FileChannel channel, long end) {
+        this.path = path;
+        this.policy = policy;
+        this.channel = channel;
+        this.appended = end;
+        this.durable = end;
+    }
+
+    // Opens the log at path for appending, creating it if needed. A torn last record left
+    // by a crash is cut off first
+    public static WriteAheadLog open(Path path, FsyncPolicy policy) throws IOException {
+        boolean created = !Files.exists(path);
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long end = scan(path, null, new long[1]);
+            if (end < HEADER) {
+                ch.truncate(0);
+                ch.write(ByteBuffer.allocate(HEADER).putInt(0, MAGIC), 0);
+                end = HEADER;
+            }
+            ch.truncate(end);
+            ch.position(end);
+            ch.force(true);
+            if (created) syncDirectory(path);
+            return new WriteAheadLog(path, policy, ch, end);
+        } catch (IOException | RuntimeException ex) {
+            ch.close();
+            throw ex;
+        }
+    }
+
+    public Path path() { return path; }
+
+    public FsyncPolicy policy() { return policy; }
+
+    public synchronized long logAdd(Product p) {
+        int at = begin(ADD);
+        putString(p.getSku());
+        putString(p.getName());
+        putString(p.getCategory());
+        putLong(Double.doubleToLongBits(p.getPrice()));
+        putInt(p.getStock());
+        return end(at);
+    }
+
+    public synchronized long logRemove(String sku) {
+        int at = begin(REMOVE);
+        putString(sku);
+        return end(at);
+    }
+
+    public synchronized long logPrice(String sku, double price) {
+        int at = begin(PRICE);
+        putString(sku);
+        putLong(Double.doubleToLongBits(price));
+        return end(at);
+    }
+
+    public long logStock(String sku, int delta) {
+        return logStock(new String[] {sku}, new int[] {delta}, 1);
+    }
+
+    // Stock changes to several products as one record, so replay applies all or none
+    public synchronized long logStock(String[] skus, int[] deltas, int count) {
+        int at = begin(STOCK);
+        putInt(count);
+        for (int i = 0; i < count; i++) {
+            putString(skus[i]);
+            putInt(deltas[i]);
+        }
+        return end(at);
+    }
+
+    // Returns once every record up to lsn is durable under the policy
+    public void await(long lsn) throws IOException {
+        if (durable >= lsn) return;
+        synchronized (flushLock) {
+            // The flush this thread waited behind may have covered it
+            if (durable >= lsn) return;
+            flush();
+        }
+    }
+
+    // Caller holds flushLock. Writes out everything appended so far
+    private void flush() throws IOException {
+        if (failure != null) throw new IOException("Log " + path + " failed earlier", failure);
+        byte[] batch;
+        int len;
+        long end;
+        synchronized (this) {
+            batch = buf;
+            len = size;
+            end = appended;
+            buf = spare;
+            size = 0;
+        }
+        try {
+            if (policy == FsyncPolicy.EVERY_WRITE) {
+                for (int pos = 0; pos < len; ) {
+                    int n = FRAMING + ByteBuffer.wrap(batch).getInt(pos);
+                    write(batch, pos, n);
+                    channel.force(false);
+                    pos += n;
+                }
+            } else {
+                write(batch, 0, len);
+                if (policy == FsyncPolicy.GROUP) channel.force(false);
+            }
+        } catch (IOException ex) {
+            failure = ex;
+            throw ex;
+        }
+        durable = end;
+        spare = batch;
+    }
+
+    private void write(byte[] b, int from, int len) throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(b, from, len);
+        while (bb.hasRemaining()) channel.write(bb);
+    }
+
+    // Starts a new file: everything appended so far is forced, the current file becomes
+    // the next numbered segment (path.1, path.2, ...) and an empty log takes its place.
+    // Returns the segment. Nothing may be appended meanwhile
+    public Path roll() throws IOException {
+        synchronized (flushLock) {
+            flush();
+            channel.force(true);
+            channel.close();
+            List<Path> old = segments(path);
+            int next = old.isEmpty() ? 1 : segmentNumber(path, old.get(old.size() - 1)) + 1;
+            Path segment = path.resolveSibling(path.getFileName() + "." + next);
+            Files.move(path, segment, StandardCopyOption.ATOMIC_MOVE);
+            FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            ch.write(ByteBuffer.allocate(HEADER).putInt(0, MAGIC));
+            ch.force(true);
+            channel = ch;
+            syncDirectory(path);
+            return segment;
+        }
+    }
+
+    // Writes out and forces whatever was appended, then closes the file
+    @Override public void close() throws IOException {
+        synchronized (flushLock) {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+            }
+            try {
+                flush();
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    // Passes every intact record of the log at path to replay, in order; returns how many
+    public static long replay(Path path, Replay replay) throws IOException {
+        long[] records = new long[1];
+        scan(path, replay, records);
+        return records[0];
+    }
+
+    // Rolled segments of the log at path, oldest first
+    public static List<Path> segments(Path path) throws IOException {
+        List<Path> out = new ArrayList<>();
+        Path dir = path.toAbsolutePath().getParent();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, path.getFileName() + ".*")) {
+            for (Path f : files) {
+                if (segmentNumber(path, f) > 0) out.add(path.resolveSibling(f.getFileName()));
+            }
+        }
+        out.sort((a, b) -> Integer.compare(segmentNumber(path, a), segmentNumber(path, b)));
+        return out;
+    }
+
+    public static void deleteSegments(Path path) throws IOException {
+        for (Path segment : segments(path)) Files.delete(segment);
+    }
+
+    // n for path.n, otherwise -1
+    private static int segmentNumber(Path path, Path file) {
+        String name = file.getFileName().toString();
+        String prefix = path.getFileName() + ".";
+        if (!name.startsWith(prefix) || name.length() == prefix.length() || name.length() - prefix.length() > 9) return -1;
+        int n = 0;
+        for (int i = prefix.length(); i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+
+    // Forces the directory holding file, so creating, renaming or deleting entries in it
+    // survives a power cut. Skipped where directories cannot be opened (Windows)
+    public static void syncDirectory(Path file) {
+        Path dir = file.toAbsolutePath().getParent();
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException ex) {
+            // Not supported on this platform
+        }
+    }
+
+    // Reads records until the end or the first torn or corrupt one, passing each to replay
+    // if it is not null. Returns the offset after the last intact record (0 if even the
+    // header is missing) and counts records in records[0]
+    private static long scan(Path path, Replay replay, long[] records) throws IOException {
+        long size = Files.size(path);
+        if (size < HEADER) return 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a write-ahead log: " + path);
+            CRC32C check = new CRC32C();
+            byte[] rec = new byte[256];
+            long pos = HEADER;
+            while (size - pos >= FRAMING + 1) {
+                int len = in.readInt();
+                if (len < 1 || len > MAX_RECORD || len > size - pos - FRAMING) break;
+                if (rec.length < len) rec = new byte[Math.max(len, rec.length * 2)];
+                in.readFully(rec, 0, len);
+                int sum = in.readInt();
+                check.reset();
+                check.update(rec, 0, len);
+                if ((int) check.getValue() != sum) break;
+                if (replay != null) apply(ByteBuffer.wrap(rec, 0, len), replay);
+                records[0]++;
+                pos += FRAMING + len;
+            }
+            return pos;
+        }
+    }
+
+    private static void apply(ByteBuffer rec, Replay replay) throws IOException {
+        byte type = rec.get();
+        switch (type) {
+            case ADD: {
+                String sku = getString(rec), name = getString(rec), category = getString(rec);
+                double price = Double.longBitsToDouble(rec.getLong());
+                replay.add(new Product(sku, name, category, price, rec.getInt()));
+                break;
+            }
+            case REMOVE: replay.remove(getString(rec)); break;
+            case PRICE: {
+                String sku = getString(rec);
+                replay.price(sku, Double.longBitsToDouble(rec.getLong()));
+                break;
+            }
+            case STOCK: {
+                int count = rec.getInt();
+                for (int i = 0; i < count; i++) {
+                    String sku = getString(rec);
+                    replay.stock(sku, rec.getInt());
+                }
+                break;
+            }
+            default: throw new IOException("Unknown record type " + type);
+        }
+    }
+
+    private static String getString(ByteBuffer rec) {
+        int len = rec.getInt();
+        String s = new String(rec.array(), rec.position(), len, StandardCharsets.UTF_8);
+        rec.position(rec.position() + len);
+        return s;
+    }
+
+    // ---------------------------------------------------------------------
+    // Record encoding; caller holds the monitor
+    // ---------------------------------------------------------------------
+
+    // Reserves the length field and writes the type; returns where the record starts
+    private int begin(byte type) {
+        if (closed) throw new IllegalStateException("Log " + path + " is closed");
+        int at = size;
+        ensure(5);
+        size += 4;
+        buf[size++] = type;
+        return at;
+    }
+
+    // Fills in the length, appends the checksum and returns the record's LSN
+    private long end(int at) {
+        int len = size - at - 4;
+        ByteBuffer.wrap(buf).putInt(at, len);
+        crc.reset();
+        crc.update(buf, at + 4, len);
+        putInt((int) crc.getValue());
+        appended += size - at;
+        return appended;
+    }
+
+    private void ensure(int n) {
+        if (buf.length - size < n) {
+            byte[] grown = new byte[Math.max(buf.length * 2, size + n)];
+            System.arraycopy(buf, 0, grown, 0, size);
+            buf = grown;
+        }
+    }
+
+    private void putInt(int v) {
+        ensure(4);
+        ByteBuffer.wrap(buf).putInt(size, v);
+        size += 4;
+    }
+
+    private void putLong(long v) {
+        ensure(8);
+        ByteBuffer.wrap(buf).putLong(size, v);
+        size += 8;
+    }
+
+    private void putString(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        putInt(b.length);
+        ensure(b.length);
+        System.arraycopy(b, 0, buf, size, b.length);
+        size += b.length;
+    }
+}
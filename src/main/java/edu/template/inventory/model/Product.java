@@ -1,39 +1,74 @@
-
 package edu.template.inventory.model;
 
+import edu.template.inventory.ds.SymbolTable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Objects;
 
 public class Product implements Comparable<Product> {
+    // A catalog has few categories, so each product keeps only the dictionary code and
+    // every equal category is one shared String. Names can be as many as the products and
+    // are kept as plain Strings: a process-wide dictionary of them would only grow across
+    // reloads (loaders still share the instance among rows with the same name)
+    public static final SymbolTable CATEGORIES = new SymbolTable();
+
+    // Atomic access to stock for callers that change it from several threads
+    private static final VarHandle STOCK;
+    static {
+        try {
+            STOCK = MethodHandles.lookup().findVarHandle(Product.class, "stock", int.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
     private final String sku;
     private String name;
-    private String category;
+    private int categoryCode;
     private double price;
     private int stock;
 
     public Product(String sku, String name, String category, double price, int stock) {
+        this(sku, name, CATEGORIES.intern(Objects.requireNonNull(category)), price, stock);
+    }
+
+    // For loaders that already hold the category code (see CATEGORIES)
+    public Product(String sku, String name, int categoryCode, double price, int stock) {
         this.sku = Objects.requireNonNull(sku);
         this.name = Objects.requireNonNull(name);
-        this.category = Objects.requireNonNull(category);
+        // Fail fast on a code that was never interned
+        CATEGORIES.symbol(categoryCode);
+        this.categoryCode = categoryCode;
         this.price = price;
         this.stock = stock;
     }
 
     public String getSku() { return sku; }
     public String getName() { return name; }
-    public String getCategory() { return category; }
+    public String getCategory() { return CATEGORIES.symbol(categoryCode); }
     public double getPrice() { return price; }
     public int getStock() { return stock; }
 
-    public void setName(String name) { this.name = name; }
-    public void setCategory(String category) { this.category = category; }
+    public int getCategoryCode() { return categoryCode; }
+
+    public void setName(String name) { this.name = Objects.requireNonNull(name); }
+    public void setCategory(String category) { this.categoryCode = CATEGORIES.intern(Objects.requireNonNull(category)); }
     public void setPrice(double price) { this.price = price; }
     public void setStock(int stock) { this.stock = stock; }
 
+    // Sets stock to newStock only if it is still expected; returns the stock found either way
+    public int compareAndExchangeStock(int expected, int newStock) {
+        return (int) STOCK.compareAndExchange(this, expected, newStock);
+    }
+
+    public int getAndAddStock(int delta) { return (int) STOCK.getAndAdd(this, delta); }
+
     @Override public String toString() {
-        return String.format("%s | %s | %s | $%.2f | stock=%d", sku, name, category, price, stock);
+        return String.format("%s | %s | %s | $%.2f | stock=%d", sku, name, getCategory(), price, stock);
     }
 
     @Override public int compareTo(Product o) {
-        return this.name.compareToIgnoreCase(o.name);
+        return this.getName().compareToIgnoreCase(o.getName());
     }
 }
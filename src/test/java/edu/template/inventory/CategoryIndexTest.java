@@ -0,0 +1,55 @@
+package edu.template.inventory;
+
+import edu.template.inventory.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryIndexTest {
+
+    @Test
+    void removalsRepricesAndSellOutsKeepMembersAndAggregatesExact() {
+        InventoryService svc = new InventoryService();
+        List<Product> data = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            data.add(new Product("C-" + i, "Item " + (i % 50), i % 3 == 0 ? "Big" : "Small", 1 + i % 97, 1 + i % 5));
+        }
+        svc.load(data);
+        Random rnd = new Random(8);
+        for (int i = 0; i < 3_000; i++) {
+            String sku = "C-" + rnd.nextInt(2_000);
+            switch (rnd.nextInt(4)) {
+                case 0: svc.removeBySku(sku); break;
+                case 1: svc.order(sku, 1); break;
+                case 2: svc.updatePrice(sku, 1 + rnd.nextInt(200)); break;
+                default: svc.restock(sku, 2);
+            }
+        }
+        for (String category : new String[] {"Big", "Small"}) {
+            List<Product> expected = new ArrayList<>();
+            for (Product p : svc.list("name")) if (p.getCategory().equals(category)) expected.add(p);
+            InventoryService.CategoryStats st = svc.categoryStats(category);
+            assertEquals(expected.size(), st.count);
+            long stock = 0;
+            double value = 0, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+            for (Product p : expected) {
+                stock += p.getStock();
+                value += p.getPrice() * p.getStock();
+                min = Math.min(min, p.getPrice());
+                max = Math.max(max, p.getPrice());
+            }
+            assertEquals(stock, st.totalStock);
+            assertEquals(value, st.stockValue, 1e-6);
+            assertEquals(min, st.minPrice);
+            assertEquals(max, st.maxPrice);
+            Set<Product> paged = new HashSet<>(svc.listByCategory(category, 0, Integer.MAX_VALUE));
+            assertEquals(new HashSet<>(expected), paged);
+        }
+    }
+}
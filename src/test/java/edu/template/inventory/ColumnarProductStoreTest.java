@@ -0,0 +1,94 @@
+package edu.template.inventory;
+
+import edu.template.inventory.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarProductStoreTest {
+
+    @Test
+    void churnCompactsDeadRowsAndKeepsViewsAndLookupsRight() {
+        ColumnarProductStore store = new ColumnarProductStore(16);
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        Random rnd = new Random(16);
+        int next = 0;
+        Product held = null;
+        String heldSku = null;
+        for (int i = 0; i < 20_000; i++) {
+            if (expected.size() < 2 || rnd.nextBoolean()) {
+                String sku = "SKU-" + next++;
+                int stock = rnd.nextInt(100);
+                assertTrue(store.add(new Product(sku, "Item", "Cat", 1.5, stock)));
+                expected.put(sku, stock);
+                if (held == null) { held = store.get(sku); heldSku = sku; }
+            } else {
+                // Oldest product other than the one whose view is held
+                String sku = null;
+                for (String k : expected.keySet()) if (!k.equals(heldSku)) { sku = k; break; }
+                if (sku == null) continue;
+                assertTrue(store.remove(sku));
+                expected.remove(sku);
+            }
+        }
+        assertEquals(expected.size(), store.size());
+
+        List<String> order = new ArrayList<>();
+        for (Product p : store) order.add(p.getSku());
+        assertEquals(new ArrayList<>(expected.keySet()), order);
+        for (Map.Entry<String, Integer> e : expected.entrySet()) {
+            assertEquals((int) e.getValue(), store.get(e.getKey()).getStock());
+        }
+
+        // A view taken before the compactions still reaches its own row
+        held.setStock(4242);
+        assertEquals(4242, store.stockAt(store.rowOf(heldSku)));
+    }
+
+    @Test
+    void viewOfRemovedProductKeepsItsLastValues() {
+        ColumnarProductStore store = new ColumnarProductStore();
+        store.add(new Product("A", "Item", "Cat", 1, 1));
+        Product view = store.get("A");
+        assertSame(view, store.get("A"));
+        int row = store.rowOf("A");
+        view.setStock(9);
+        store.remove("A");
+        store.compact();
+        assertEquals(9, view.getStock());
+        assertEquals("Cat", view.getCategory());
+        assertThrows(IllegalArgumentException.class, () -> store.stockAt(row));
+    }
+
+    @Test
+    void columnarServiceIndexesViewsAndReusesRemovedRows() {
+        InventoryService svc = new InventoryService(InventoryService.Storage.COLUMNAR);
+        List<Product> data = new ArrayList<>();
+        for (int i = 0; i < 100; i++) data.add(new Product("S-" + i, "Item " + i, "Cat" + (i % 3), 1 + i, 10));
+        svc.load(data);
+        Product p = svc.find("S-7");
+        assertNotSame(data.get(7), p);
+        assertTrue(svc.order("S-7", 4).ok);
+        assertEquals(6, p.getStock());
+        assertEquals(10, data.get(7).getStock());
+        assertTrue(svc.updatePrice("S-7", 500));
+        assertSame(p, svc.list("price").get(99));
+
+        assertTrue(svc.removeBySku("S-7"));
+        assertEquals(500, p.getPrice());
+        assertNull(svc.find("S-7"));
+        assertTrue(svc.add(new Product("N-1", "New", "Cat1", 2, 3)));
+        Product added = svc.find("N-1");
+        assertEquals(3, added.getStock());
+        // The new product took the removed one's row; the removed view is unaffected
+        assertEquals(6, p.getStock());
+        assertEquals(100, svc.list("name").size());
+        assertEquals(33, svc.categoryStats("Cat1").count);
+    }
+}
@@ -0,0 +1,226 @@
+package edu.template.inventory;
+
+import edu.template.inventory.io.DataGenerator;
+import edu.template.inventory.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentInventoryServiceTest {
+
+    // 64 threads order (and occasionally restock) 16 hot SKUs that sell out mid-run plus a
+    // tail of cold ones. Afterwards every SKU must satisfy initial + restocked - sold ==
+    // stock >= 0, and exactly the SKUs at zero must be gone from the catalog
+    @Test
+    void ordersNeverOversellUnderContention() throws InterruptedException {
+        checkoutStorm(InventoryService.Storage.LINKED);
+    }
+
+    // Same storm against off-heap rows: the CAS goes to the stock column through the views
+    @Test
+    void columnarOrdersNeverOversellUnderContention() throws InterruptedException {
+        checkoutStorm(InventoryService.Storage.COLUMNAR);
+    }
+
+    private static void checkoutStorm(InventoryService.Storage storage) throws InterruptedException {
+        int n = 1_000, threads = 64, opsPerThread = 2_000;
+        List<Product> data = DataGenerator.generate(n, 77);
+        long ops = (long) threads * opsPerThread;
+        int[] initial = new int[n];
+        String[] skus = new String[n];
+        for (int i = 0; i < n; i++) {
+            Product p = data.get(i);
+            // Hot SKUs hold about half their demand, cold ones about what they will be asked for
+            p.setStock(i < 16 ? (int) (ops / 40) : (int) Math.max(1, ops * 4 / 5 / n));
+            initial[i] = p.getStock();
+            skus[i] = p.getSku();
+        }
+        ConcurrentInventoryService svc = new ConcurrentInventoryService(storage);
+        svc.load(data);
+        // What the service stores: data's own products, or their views in a columnar store
+        Product[] stored = new Product[n];
+        for (int i = 0; i < n; i++) stored[i] = svc.find(skus[i]);
+
+        AtomicLongArray sold = new AtomicLongArray(n);
+        AtomicLongArray restocked = new AtomicLongArray(n);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long seed = 1000 + t;
+            workers[t] = new Thread(() -> {
+                Random rnd = new Random(seed);
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < opsPerThread; i++) {
+                    int k = rnd.nextBoolean() ? rnd.nextInt(16) : rnd.nextInt(n);
+                    int qty = 1 + rnd.nextInt(3);
+                    int op = rnd.nextInt(100);
+                    if (op < 2) {
+                        if (svc.restock(skus[k], qty)) restocked.addAndGet(k, qty);
+                    } else if (op < 20) {
+                        svc.find(skus[k]);
+                    } else if (svc.order(skus[k], qty).ok) {
+                        sold.addAndGet(k, qty);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread w : workers) w.join();
+
+        int soldOut = 0;
+        long listed = 0;
+        for (int i = 0; i < n; i++) {
+            Product p = stored[i];
+            long expected = initial[i] + restocked.get(i) - sold.get(i);
+            assertTrue(expected >= 0, "oversold " + p.getSku());
+            assertEquals(expected, p.getStock(), p.getSku());
+            if (svc.find(p.getSku()) == null) {
+                assertEquals(0, p.getStock(), "removed with stock left: " + p.getSku());
+                soldOut++;
+            } else {
+                assertTrue(p.getStock() > 0, "listed at zero stock: " + p.getSku());
+                listed += p.getStock();
+            }
+        }
+        assertTrue(soldOut > 0, "the hot SKUs should sell out");
+        assertEquals(n - soldOut, svc.list("stock").size());
+        long categoryStock = 0;
+        for (InventoryService.CategoryStats st : svc.categoryStats()) categoryStock += st.totalStock;
+        assertEquals(listed, categoryStock);
+    }
+
+    private static ConcurrentInventoryService tools() {
+        ConcurrentInventoryService svc = new ConcurrentInventoryService();
+        svc.load(List.of(new Product("A1", "Anvil", "Tools", 10, 5), new Product("B1", "Bolt", "Tools", 20, 7)));
+        return svc;
+    }
+
+    @Test
+    void removingAProductCancelsItsHeldReservations() {
+        ConcurrentInventoryService svc = tools();
+        ConcurrentInventoryService.Reservation r = svc.tryReserve("A1", 2);
+        assertNotNull(r);
+        assertTrue(svc.removeBySku("A1"));
+        assertFalse(r.isHeld());
+        assertFalse(svc.release(r));
+        assertFalse(svc.commit(r));
+
+        assertNull(svc.find("A1"));
+        assertEquals(List.of("B1"), svc.list("stock").stream().map(Product::getSku).toList());
+        InventoryService.CategoryStats st = svc.categoryStats("Tools");
+        assertEquals(1, st.count);
+        assertEquals(7, st.totalStock);
+        assertEquals(140.0, st.stockValue, 1e-9);
+    }
+
+    @Test
+    void loadingCancelsHeldReservationsOnReplacedProducts() {
+        ConcurrentInventoryService svc = tools();
+        ConcurrentInventoryService.Reservation r = svc.tryReserve("B1", 3);
+        svc.load(List.of(new Product("B1", "Bolt", "Tools", 20, 7)));
+        assertFalse(svc.release(r));
+        assertEquals(7, svc.find("B1").getStock());
+        assertEquals(7, svc.categoryStats("Tools").totalStock);
+        assertEquals(0, svc.queuedReservations());
+    }
+
+    @Test
+    void abandonedCartsExpireOnOrderTraffic() throws InterruptedException {
+        ConcurrentInventoryService svc = tools();
+        svc.setReservationTimeout(10, TimeUnit.MILLISECONDS);
+        assertNotNull(svc.tryReserve("A1", 3));
+        assertEquals(2, svc.find("A1").getStock());
+        Thread.sleep(30);
+        // No reservation call: an order on another SKU is enough to expire the cart
+        assertTrue(svc.order("B1", 1).ok);
+        assertEquals(5, svc.find("A1").getStock());
+    }
+
+    @Test
+    void settledReservationsDoNotPileUpBehindAHeldOne() {
+        ConcurrentInventoryService svc = tools();
+        svc.restock("B1", 100_000);
+        // Held for the default 15 minutes: the queue head never comes due in this test
+        assertNotNull(svc.tryReserve("A1", 1));
+        for (int i = 0; i < 50_000; i++) {
+            ConcurrentInventoryService.Reservation r = svc.tryReserve("B1", 1);
+            if (i % 2 == 0) assertTrue(svc.commit(r));
+            else assertTrue(svc.release(r));
+        }
+        assertTrue(svc.queuedReservations() <= 2_048, "queued: " + svc.queuedReservations());
+        assertEquals(4, svc.find("A1").getStock());
+        assertEquals(7 + 100_000 - 25_000, svc.find("B1").getStock());
+    }
+
+    @Test
+    void shortCartTakesNothingAndReportsEveryShortLine() {
+        ConcurrentInventoryService svc = tools();
+        InventoryService.BatchResult r = svc.orderBatch(List.of(
+                new InventoryService.OrderLine("B1", 2),
+                new InventoryService.OrderLine("A1", 4),
+                new InventoryService.OrderLine("ZZ", 1),
+                new InventoryService.OrderLine("A1", 2)));
+        assertFalse(r.ok);
+        assertArrayEquals(new byte[] {InventoryService.BatchResult.LINE_OK, InventoryService.BatchResult.INSUFFICIENT_STOCK,
+                InventoryService.BatchResult.NOT_FOUND, InventoryService.BatchResult.INSUFFICIENT_STOCK}, r.codes);
+        assertEquals(5, svc.find("A1").getStock());
+        assertEquals(7, svc.find("B1").getStock());
+    }
+
+    // Carts of three lines over a small catalog from many threads: each cart is filled
+    // whole or not at all, so stock always equals initial minus the filled carts' lines
+    @Test
+    void concurrentCartsAreAllOrNothing() throws InterruptedException {
+        int n = 12, threads = 16, cartsPerThread = 2_000;
+        List<Product> data = DataGenerator.generate(n, 24);
+        String[] skus = new String[n];
+        int[] initial = new int[n];
+        for (int i = 0; i < n; i++) {
+            data.get(i).setStock(3_000);
+            skus[i] = data.get(i).getSku();
+            initial[i] = 3_000;
+        }
+        ConcurrentInventoryService svc = new ConcurrentInventoryService();
+        svc.load(data);
+
+        AtomicLongArray sold = new AtomicLongArray(n);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long seed = 500 + t;
+            workers[t] = new Thread(() -> {
+                Random rnd = new Random(seed);
+                for (int c = 0; c < cartsPerThread; c++) {
+                    int[] k = {rnd.nextInt(n), rnd.nextInt(n), rnd.nextInt(n)};
+                    int[] q = {1 + rnd.nextInt(3), 1 + rnd.nextInt(3), 1 + rnd.nextInt(3)};
+                    List<InventoryService.OrderLine> cart = List.of(
+                            new InventoryService.OrderLine(skus[k[0]], q[0]),
+                            new InventoryService.OrderLine(skus[k[1]], q[1]),
+                            new InventoryService.OrderLine(skus[k[2]], q[2]));
+                    if (svc.orderBatch(cart).ok) {
+                        for (int j = 0; j < 3; j++) sold.addAndGet(k[j], q[j]);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) w.join();
+
+        for (int i = 0; i < n; i++) {
+            Product p = data.get(i);
+            assertEquals(initial[i] - sold.get(i), p.getStock(), p.getSku());
+            assertTrue(p.getStock() >= 0);
+            assertEquals(p.getStock() == 0, svc.find(p.getSku()) == null, p.getSku());
+        }
+    }
+}
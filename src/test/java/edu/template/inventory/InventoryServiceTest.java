@@ -0,0 +1,180 @@
+package edu.template.inventory;
+
+import edu.template.inventory.io.WriteAheadLog;
+import edu.template.inventory.model.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryServiceTest {
+
+    private static List<Product> tools(int n) {
+        List<Product> data = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            data.add(new Product(String.format("T%03d", i), "Tool " + i, "Tools", 10 + i % 7, 1 + i % 4));
+        }
+        return data;
+    }
+
+    @Test
+    void cursorSurvivesItsAnchorSellingOutOrBeingRemoved() {
+        for (String by : new String[] {"name", "price", "stock"}) {
+            InventoryService svc = new InventoryService();
+            svc.load(tools(30));
+            List<Product> expected = svc.list(by);
+
+            List<Product> seen = new ArrayList<>();
+            List<Product> page = svc.listAfter(by, null, 4);
+            int turn = 0;
+            while (!page.isEmpty()) {
+                seen.addAll(page);
+                Product last = page.get(page.size() - 1);
+                InventoryService.Cursor cursor = InventoryService.Cursor.after(last);
+                // The anchor leaves the listing before the next page is read
+                if (turn++ % 2 == 0) svc.order(last.getSku(), last.getStock());
+                else svc.removeBySku(last.getSku());
+                page = svc.listAfter(by, cursor, 4);
+            }
+            assertEquals(expected, seen, by);
+        }
+    }
+
+    @Test
+    void cursorSurvivesItsAnchorBeingRepriced() {
+        InventoryService svc = new InventoryService();
+        svc.load(tools(10));
+        List<Product> first = svc.listAfter("price", null, 3);
+        Product last = first.get(2);
+        InventoryService.Cursor cursor = InventoryService.Cursor.after(last);
+        svc.updatePrice(last.getSku(), 1_000);
+        List<Product> rest = svc.listAfter("price", cursor, 100);
+        List<Product> expected = new ArrayList<>(svc.list("price"));
+        expected.removeAll(first);
+        // Repriced past the cursor, the anchor shows up again where it now sorts
+        expected.add(last);
+        assertEquals(expected, rest);
+    }
+
+    @Test
+    void streamsAFileLargerThanTheHeap(@TempDir Path dir) throws IOException {
+        // Long names that repeat: the file outgrows the heap, the catalog does not
+        String name = "Bulk " + "x".repeat(2_000);
+        long heap = Runtime.getRuntime().maxMemory();
+        Path csv = dir.resolve("big.csv");
+        int rows = 0;
+        try (BufferedWriter w = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            w.write("sku,name,category,price,stock\n");
+            long written = 0;
+            while (written <= heap + (16 << 20)) {
+                String row = "B" + rows + "," + name + ",Bulk," + (1 + rows % 50) + ".25," + (rows % 9) + "\n";
+                w.write(row);
+                written += row.length();
+                rows++;
+            }
+        }
+        assertTrue(Files.size(csv) > heap);
+
+        InventoryService svc = new InventoryService();
+        assertEquals(rows, svc.loadStreaming(csv.toString()).loaded);
+        assertEquals(rows, svc.categoryStats("Bulk").count);
+        assertEquals(name, svc.find("B" + (rows - 1)).getName());
+        assertEquals(rows, svc.list("price", 0, Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    void failedStreamingLoadKeepsThePreviousCatalog(@TempDir Path dir) {
+        InventoryService svc = new InventoryService();
+        svc.load(tools(12));
+        // Opening a directory succeeds; the first read fails mid-load
+        assertThrows(IOException.class, () -> svc.loadStreaming(dir.toString()));
+        assertEquals(12, svc.list("name").size());
+        assertEquals(12, svc.categoryStats("Tools").count);
+        assertNotNull(svc.find("T005"));
+    }
+
+    @Test
+    void cartLinesForOneSkuAreCheckedTogether() {
+        InventoryService svc = new InventoryService();
+        svc.load(tools(3));
+        int stock = svc.find("T001").getStock();
+        InventoryService.BatchResult r = svc.orderBatch(List.of(
+                new InventoryService.OrderLine("T001", stock),
+                new InventoryService.OrderLine("T000", 1),
+                new InventoryService.OrderLine("T001", 1)));
+        assertFalse(r.ok);
+        assertArrayEquals(new byte[] {InventoryService.BatchResult.INSUFFICIENT_STOCK, InventoryService.BatchResult.LINE_OK,
+                InventoryService.BatchResult.INSUFFICIENT_STOCK}, r.codes);
+        assertEquals(stock, svc.find("T001").getStock());
+
+        assertTrue(svc.orderBatch(List.of(new InventoryService.OrderLine("T001", stock - 1),
+                new InventoryService.OrderLine("T001", 1))).ok);
+        assertNull(svc.find("T001"));
+    }
+
+    // Writes a snapshot of A1 (stock 2) and B1 (stock 4) and a log of the given stock
+    // deltas for A1, then recovers a fresh service from them
+    private static InventoryService recoverAfter(Path dir, int... deltas) throws IOException {
+        Path snapshot = dir.resolve("catalog.csv"), wal = dir.resolve("catalog.wal");
+        Files.writeString(snapshot, "sku,name,category,price,stock\nA1,Anvil,Tools,10.00,2\nB1,Bolt,Tools,20.00,4\n");
+        try (WriteAheadLog log = WriteAheadLog.open(wal, WriteAheadLog.FsyncPolicy.EVERY_WRITE)) {
+            long lsn = 0;
+            for (int d : deltas) lsn = log.logStock("A1", d);
+            log.await(lsn);
+        }
+        InventoryService svc = new InventoryService();
+        svc.recover(snapshot.toString(), wal.toString(), WriteAheadLog.FsyncPolicy.NONE);
+        svc.closeLog();
+        return svc;
+    }
+
+    @Test
+    void replayRemovesAProductWhoseSellOutWasCutShort(@TempDir Path dir) throws IOException {
+        // The sale's stock record made it to the log, the removal after it did not
+        InventoryService svc = recoverAfter(dir, -2);
+        assertNull(svc.find("A1"));
+        assertEquals(1, svc.categoryStats("Tools").count);
+        assertEquals(List.of("B1"), svc.list("stock").stream().map(Product::getSku).toList());
+    }
+
+    @Test
+    void replayKeepsAProductRestockedBeforeItsRemoval(@TempDir Path dir) throws IOException {
+        InventoryService svc = recoverAfter(dir, -2, 3);
+        assertEquals(3, svc.find("A1").getStock());
+        assertEquals(7, svc.categoryStats("Tools").totalStock);
+    }
+
+    // A checkpoint must reload to the same prices whatever the default locale
+    @Test
+    void checkpointKeepsPricesExact(@TempDir Path dir) throws IOException {
+        Path snapshot = dir.resolve("catalog.csv"), wal = dir.resolve("catalog.wal");
+        Locale saved = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            InventoryService svc = new InventoryService();
+            svc.recover(snapshot.toString(), wal.toString(), WriteAheadLog.FsyncPolicy.NONE);
+            svc.add(new Product("A1", "Anvil", "Tools", 10.005, 2));
+            svc.add(new Product("B1", "Bolt", "Tools", 1234567.891, 4));
+            svc.checkpoint(snapshot.toString());
+            svc.closeLog();
+
+            InventoryService back = new InventoryService();
+            back.recover(snapshot.toString(), wal.toString(), WriteAheadLog.FsyncPolicy.NONE);
+            back.closeLog();
+            assertEquals(10.005, back.find("A1").getPrice());
+            assertEquals(1234567.891, back.find("B1").getPrice());
+            assertEquals(4, back.find("B1").getStock());
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package edu.template.inventory.ds;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentHashTableTest {
+
+    // Writers grow the table from its initial 16 bins through every resize while they also
+    // remove half of what they put, and readers keep looking up keys that are never
+    // removed. No lookup may miss, and the final contents must be exact
+    @Test
+    void putAndRemoveDuringResizesLoseNothing() throws InterruptedException {
+        int writers = 8, readers = 4, perWriter = 20_000, stable = 500;
+        ConcurrentHashTable<String, Integer> table = new ConcurrentHashTable<>();
+        for (int i = 0; i < stable; i++) table.put("stable-" + i, i);
+
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[writers + readers];
+        for (int t = 0; t < writers; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                await(start);
+                for (int i = 0; i < perWriter; i++) {
+                    String key = "w" + id + "-" + i;
+                    if (table.put(key, i) != null) failure.compareAndSet(null, "put found a value for new key " + key);
+                    // Remove every odd key a little after putting it, so removals hit bins
+                    // on both sides of a running migration
+                    if (i % 2 == 1 && i >= 9) {
+                        String old = "w" + id + "-" + (i - 8);
+                        if (table.remove(old) == null) failure.compareAndSet(null, "remove missed " + old);
+                    }
+                }
+            });
+        }
+        for (int t = writers; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                await(start);
+                int i = 0;
+                while (writing.get()) {
+                    int k = i++ % stable;
+                    Integer v = table.get("stable-" + k);
+                    if (v == null || v != k) failure.compareAndSet(null, "lookup of stable-" + k + " saw " + v);
+                }
+            });
+        }
+        for (Thread t : threads) t.start();
+        start.countDown();
+        for (int t = 0; t < writers; t++) threads[t].join();
+        writing.set(false);
+        for (int t = writers; t < threads.length; t++) threads[t].join();
+        assertNull(failure.get());
+
+        int expected = stable;
+        for (int id = 0; id < writers; id++) {
+            for (int i = 0; i < perWriter; i++) {
+                String key = "w" + id + "-" + i;
+                // Odd keys up to the last removed one (perWriter - 1 - 8) are gone
+                boolean removed = i % 2 == 1 && i <= perWriter - 9;
+                if (removed) {
+                    assertNull(table.get(key), key);
+                } else {
+                    assertEquals(i, table.get(key), key);
+                    expected++;
+                }
+            }
+        }
+        assertEquals(expected, table.size());
+        int[] walked = new int[1];
+        table.forEach((k, v) -> walked[0]++);
+        assertEquals(expected, walked[0]);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package edu.template.inventory.ds;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiHashTableTest {
+
+    // Equal by content, so only identity can tell two instances apart
+    private static final class Item {
+        final int id;
+        Item(int id) { this.id = id; }
+        @Override public boolean equals(Object o) { return o instanceof Item; }
+        @Override public int hashCode() { return 1; }
+    }
+
+    @Test
+    void removeMatchesByIdentityOnly() {
+        MultiHashTable<String, Item> t = new MultiHashTable<>();
+        Item a = new Item(1), b = new Item(2);
+        t.put("k", a);
+        assertFalse(t.remove("k", b));
+        t.put("k", b);
+        assertTrue(t.remove("k", b));
+        assertEquals(List.of(a), t.get("k"));
+        assertFalse(t.remove("other", a));
+        assertTrue(t.remove("k", a));
+        assertFalse(t.containsKey("k"));
+        assertEquals(0, t.size());
+    }
+
+    @Test
+    void putRejectsAValueAlreadyStored() {
+        MultiHashTable<String, Item> t = new MultiHashTable<>();
+        Item a = new Item(1);
+        t.put("k", a);
+        assertThrows(IllegalArgumentException.class, () -> t.put("j", a));
+    }
+
+    @Test
+    void randomRemovalsKeepEveryListConsistent() {
+        MultiHashTable<Integer, Item> t = new MultiHashTable<>();
+        List<List<Item>> model = new ArrayList<>();
+        for (int k = 0; k < 4; k++) model.add(new ArrayList<>());
+        Random rnd = new Random(5);
+        for (int i = 0; i < 20_000; i++) {
+            int k = rnd.nextInt(4);
+            List<Item> list = model.get(k);
+            if (list.isEmpty() || rnd.nextInt(3) != 0) {
+                Item item = new Item(i);
+                t.put(k, item);
+                list.add(item);
+            } else {
+                Item item = list.remove(rnd.nextInt(list.size()));
+                assertTrue(t.remove(k, item));
+            }
+        }
+        int total = 0;
+        for (int k = 0; k < 4; k++) {
+            List<Item> expected = model.get(k);
+            total += expected.size();
+            assertEquals(expected.size(), t.count(k));
+            assertEquals(identities(expected), identities(t.get(k)));
+        }
+        assertEquals(total, t.size());
+    }
+
+    private static HashSet<Integer> identities(List<Item> items) {
+        HashSet<Integer> ids = new HashSet<>();
+        for (Item item : items) ids.add(item.id);
+        return ids;
+    }
+}